@@ -11,6 +11,9 @@ package eu.arrowhead.client.common;
 
 import eu.arrowhead.client.common.exception.ArrowheadException;
 import eu.arrowhead.client.common.exception.AuthException;
+import eu.arrowhead.client.common.filter.AccessPolicy;
+import eu.arrowhead.client.common.filter.RateLimiter;
+import eu.arrowhead.client.common.http.LatencyResource;
 import eu.arrowhead.client.common.misc.ClientType;
 import eu.arrowhead.client.common.misc.SecurityUtils;
 import eu.arrowhead.client.common.misc.TypeSafeProperties;
@@ -117,7 +120,9 @@ public abstract class ArrowheadClientMain {
   private void startServer(Set<Class<?>> classes, String[] packages) {
     final ResourceConfig config = new ResourceConfig();
     config.registerClasses(classes);
+    config.registerClasses(LatencyResource.class);
     config.packages(packages);
+    config.property(RateLimiter.PROPERTY, RateLimiter.fromProperties(props));
 
     URI uri = UriBuilder.fromUri(baseUri).build();
     try {
@@ -134,7 +139,9 @@ public abstract class ArrowheadClientMain {
   protected void startSecureServer(Set<Class<?>> classes, String[] packages) {
     final ResourceConfig config = new ResourceConfig();
     config.registerClasses(classes);
+    config.registerClasses(LatencyResource.class);
     config.packages(packages);
+    config.property(RateLimiter.PROPERTY, RateLimiter.fromProperties(props));
 
     SSLContextConfigurator sslCon = new SSLContextConfigurator();
     sslCon.setKeyStoreFile(props.getProperty("keystore"));
@@ -168,6 +175,7 @@ public abstract class ArrowheadClientMain {
               + " \"arrowhead.eu\".");
     }
     config.property("server_common_name", serverCN);
+    config.property(AccessPolicy.PROPERTY, AccessPolicy.fromProperties(props, serverCN));
 
     URI uri = UriBuilder.fromUri(baseUri).build();
     try {
@@ -31,7 +31,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ServiceConfigurationError;
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -113,8 +112,7 @@ public final class CertificateBootstrapper {
     Gets the Cloud Common Name from the Certificate Authority Core System, proper URL is read from the config file
    */
   private static String getCloudCommonNameFromCA() {
-    Response caResponse = Utility.sendRequest(CA_URL, "GET", null);
-    return caResponse.readEntity(String.class);
+    return Utility.exchange(CA_URL, "GET", null, String.class);
   }
 
   /**
@@ -256,11 +254,11 @@ public final class CertificateBootstrapper {
     Authorization Public Key is used by ArrowheadProviders to verify the signatures by the Authorization Core System in secure mode
    */
   private static void getAuthorizationPublicKey(String filePath) {
-    Response caResponse = Utility.sendRequest(CA_URL + "/auth", "GET", null);
+    String encodedPublicKey = Utility.exchange(CA_URL + "/auth", "GET", null, String.class);
     try (FileOutputStream fos = new FileOutputStream(filePath)) {
       OutputStreamWriter osw = new OutputStreamWriter(fos);
       JcaPEMWriter pemWriter = new JcaPEMWriter(osw);
-      PublicKey publicKey = SecurityUtils.getPublicKey(caResponse.readEntity(String.class), false);
+      PublicKey publicKey = SecurityUtils.getPublicKey(encodedPublicKey, false);
       pemWriter.writeObject(publicKey);
       pemWriter.flush();
       pemWriter.close();
@@ -303,8 +301,7 @@ public final class CertificateBootstrapper {
       throw new AuthException("Failed to encode certificate signing request!", e);
     }
     CertificateSigningRequest request = new CertificateSigningRequest(encodedCertRequest);
-    Response caResponse = Utility.sendRequest(CA_URL, "POST", request);
-    CertificateSigningResponse signingResponse = caResponse.readEntity(CertificateSigningResponse.class);
+    CertificateSigningResponse signingResponse = Utility.exchange(CA_URL, "POST", request, CertificateSigningResponse.class);
     signingResponse.setLocalPrivateKey(keyPair.getPrivate());
     return signingResponse;
   }
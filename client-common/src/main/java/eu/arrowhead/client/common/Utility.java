@@ -17,8 +17,30 @@ import eu.arrowhead.client.common.exception.DataNotFoundException;
 import eu.arrowhead.client.common.exception.DnsException;
 import eu.arrowhead.client.common.exception.DuplicateEntryException;
 import eu.arrowhead.client.common.exception.ErrorMessage;
+import eu.arrowhead.client.common.exception.ExceptionType;
+import eu.arrowhead.client.common.exception.TooManyRequestsException;
 import eu.arrowhead.client.common.exception.UnavailableServerException;
+import eu.arrowhead.client.common.http.CircuitBreaker;
+import eu.arrowhead.client.common.http.CircuitBreakerConfig;
+import eu.arrowhead.client.common.http.CircuitBreakerRegistry;
+import eu.arrowhead.client.common.http.ClientRegistry;
+import eu.arrowhead.client.common.http.ConnectionPoolConfig;
+import eu.arrowhead.client.common.http.ConnectionPoolStats;
+import eu.arrowhead.client.common.http.ConnectionPools;
+import eu.arrowhead.client.common.http.Deadline;
+import eu.arrowhead.client.common.http.LatencyBreakdown;
+import eu.arrowhead.client.common.http.LatencyBreakdownFilter;
+import eu.arrowhead.client.common.http.LatencyStats;
+import eu.arrowhead.client.common.http.RequestCoalescer;
+import eu.arrowhead.client.common.http.RequestListener;
+import eu.arrowhead.client.common.http.RequestOptions;
+import eu.arrowhead.client.common.http.RequestPhase;
+import eu.arrowhead.client.common.http.ResponseCache;
+import eu.arrowhead.client.common.http.ResponseCacheFilter;
+import eu.arrowhead.client.common.http.ResponseCacheStats;
+import eu.arrowhead.client.common.http.RetryPolicy;
 import eu.arrowhead.client.common.misc.JacksonJsonProviderAtRest;
+import eu.arrowhead.client.common.misc.NamedThreadFactory;
 import eu.arrowhead.client.common.misc.PasswordGenerator;
 import eu.arrowhead.client.common.misc.TypeSafeProperties;
 import java.io.BufferedReader;
@@ -36,16 +58,35 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.NotAllowedException;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.CompletionStageRxInvoker;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.core.Response;
@@ -58,46 +99,459 @@ import org.glassfish.jersey.client.ClientProperties;
 //Contains static utility methods for the project, most important one is the sendRequest method!
 public final class Utility {
 
-  private static Client client = createClient(null);
-  private static Client sslClient;
+  private static final String DEFAULT_CONF = "default.conf";
+  private static final String DEFAULT_CONF_DIR = "config" + File.separator + "default.conf";
+  private static final String APP_CONF = "app.conf";
+  private static final String APP_CONF_DIR = "config" + File.separator + "app.conf";
 
-  private static final ObjectMapper mapper = JacksonJsonProviderAtRest.getMapper();
+  //Connect and read timeout of the requests without a deadline (milliseconds)
+  private static final int DEFAULT_TIMEOUT = 30000;
+
+  private static final TypeSafeProperties clientProps = getClientProp();
+  private static final ConnectionPoolConfig poolConfig = ConnectionPoolConfig.fromProperties(clientProps);
+  private static final String INSECURE_POOL = "http";
+  private static final String SECURE_POOL = "https";
   private static final HostnameVerifier allHostsValid = (hostname, session) -> {
     // Decide whether to allow the connection...
     return true;
   };
 
-  private static final String DEFAULT_CONF = "default.conf";
-  private static final String DEFAULT_CONF_DIR = "config" + File.separator + "default.conf";
-  private static final String APP_CONF = "app.conf";
-  private static final String APP_CONF_DIR = "config" + File.separator + "app.conf";
+  //Shared by all the clients, null if disabled in the config files
+  private static final ResponseCache responseCache = ResponseCache.fromProperties(clientProps);
+  private static final CircuitBreakerRegistry circuitBreakers = new CircuitBreakerRegistry(CircuitBreakerConfig.fromProperties(clientProps));
+  private static final RetryPolicy retryPolicy = RetryPolicy.fromProperties(clientProps);
+  //Schedules the delayed retries and deadline timers of asynchronous requests (the requests themselves run on the async executor)
+  private static final ScheduledExecutorService scheduler = createScheduler();
+  //Shares the in-flight exchanges between identical GET requests sent with RequestOptions.coalesce
+  private static final RequestCoalescer coalescer = new RequestCoalescer();
+  //Bounded executor running the requests started by sendRequestAsync
+  private static final ExecutorService asyncExecutor = createAsyncExecutor();
+  private static final List<RequestListener> requestListeners = new CopyOnWriteArrayList<>();
+  private static final boolean latencyBreakdown = clientProps.getBooleanProperty("http_latency_breakdown_enabled", true);
+
+  static {
+    /*
+      HttpsURLConnection creates its default socket factory lazily, and threads racing on the first call get different instances. The default
+      Jersey connector only sets the SSLContext of the client on connections still using the default factory, so the requests losing the race
+      would be sent with the trust store of the JDK. Initializing it here (once, on a single thread) avoids the race.
+     */
+    HttpsURLConnection.getDefaultSSLSocketFactory();
+  }
+
+  private static Client client = createClient(null, INSECURE_POOL);
+  //Clients for the SSLContext set with setSSLContext and the ones given directly to sendRequest
+  private static final ClientRegistry sslClients = new ClientRegistry(clientProps.getIntProperty("http_client_cache_size", 16),
+                                                                      Utility::createClient);
+
+  private static final ObjectMapper mapper = JacksonJsonProviderAtRest.getMapper();
 
 
   private Utility() throws AssertionError {
     throw new AssertionError("Arrowhead Common:Utility is a non-instantiable class");
   }
 
-  private static Client createClient(SSLContext context) {
+  private static Client createClient(SSLContext context, String poolName) {
     ClientConfig configuration = new ClientConfig();
-    configuration.property(ClientProperties.CONNECT_TIMEOUT, 30000);
-    configuration.property(ClientProperties.READ_TIMEOUT, 30000);
+    configuration.property(ClientProperties.CONNECT_TIMEOUT, DEFAULT_TIMEOUT);
+    configuration.property(ClientProperties.READ_TIMEOUT, DEFAULT_TIMEOUT);
+    if (poolConfig.isEnabled()) {
+      ConnectionPools.configure(configuration, poolName, context, allHostsValid, poolConfig);
+    }
 
-    Client client;
+    ClientBuilder builder = ClientBuilder.newBuilder().withConfig(configuration).executorService(asyncExecutor);
     if (context != null) {
-      client = ClientBuilder.newBuilder().sslContext(context).withConfig(configuration).hostnameVerifier(allHostsValid).build();
-    } else {
-      client = ClientBuilder.newClient(configuration);
+      builder.sslContext(context).hostnameVerifier(allHostsValid);
     }
+    Client client = builder.build();
     client.register(JacksonJsonProviderAtRest.class);
+    if (responseCache != null) {
+      client.register(new ResponseCacheFilter(responseCache, poolName));
+    }
+    if (latencyBreakdown) {
+      client.register(LatencyBreakdownFilter.class);
+    }
     return client;
   }
 
+  private static ExecutorService createAsyncExecutor() {
+    int threads = Math.max(1, clientProps.getIntProperty("http_async_threads", 32));
+    int queueSize = Math.max(1, clientProps.getIntProperty("http_async_queue_size", 1024));
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueSize),
+                                                         new NamedThreadFactory("arrowhead-async-request"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static ScheduledExecutorService createScheduler() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("arrowhead-request-scheduler"));
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
   public static void setSSLContext(SSLContext context) {
-    sslClient = createClient(context);
+    if (responseCache != null) {
+      //The responses cached for the previous identity may not be visible to the new one
+      responseCache.clear();
+    }
+    //The previous client stays usable until the requests already using it are finished
+    sslClients.setDefault(context, SECURE_POOL);
+  }
+
+  /*
+    Drops the cached client created for an SSLContext previously given to sendRequest. Its connection pool (with http_pool_enabled) is shut down
+    once its requests are finished and their connections are released. The default connector has no pool of its own, its idle connections are
+    closed by the keep-alive cache of the JDK.
+   */
+  public static void releaseSSLContext(SSLContext context) {
+    sslClients.close(context);
+  }
+
+  //Snapshots of the connection pools used by sendRequest, keyed by pool name (empty, if the pooled connector is disabled in the config files)
+  public static Map<String, ConnectionPoolStats> getConnectionPoolStats() {
+    return ConnectionPools.getStats();
   }
 
   //Sends a HTTP request to the given url, with the given HTTP method type and given payload
+  public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext, RequestOptions options) {
+    validateMethod(method);
+    ClientRegistry.Lease lease = leaseClient(uri, givenContext);
+    try {
+      return sendWithRetries(prepareRequest(uri, lease), uri, method, payload, options);
+    } finally {
+      if (lease != null) {
+        lease.release();
+      }
+    }
+  }
+
+  private static <T> Response sendWithRetries(Builder request, String uri, String method, T payload, RequestOptions options) {
+    Deadline deadline = resolveDeadline(options);
+    int maxAttempts = retryPolicy.startRequest(method, options);
+    ArrowheadException lastError = null;
+    for (int attempt = 1; ; attempt++) {
+      if (attempt > 1) {
+        try {
+          Thread.sleep(getBackoff(attempt - 1, deadline));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw lastError;
+        }
+      }
+      applyDeadline(request, deadline, uri, lastError);
+
+      CircuitBreaker breaker;
+      try {
+        breaker = acquireCircuitBreaker(uri);
+      } catch (UnavailableServerException e) {
+        //The destination went unhealthy during the retries, the original error is the more useful one
+        throw lastError != null ? lastError : e;
+      }
+
+      Response response;
+      long start = attemptStarted(uri);
+      try {
+        response = invoke(request, method, payload);
+      } catch (ProcessingException e) {
+        attemptEnded(uri, start, 0);
+        if (deadline != null && deadline.isExpired()) {
+          //The timeout was cut short by the deadline, which says nothing about the health of the destination
+          release(breaker);
+          throw Deadline.exceeded(uri, e);
+        }
+        lastError = mapProcessingException(e, uri);
+        recordOutcome(breaker, lastError);
+        if (lastError instanceof UnavailableServerException && canRetry(attempt, maxAttempts, deadline)) {
+          continue;
+        }
+        throw lastError;
+      } catch (RuntimeException e) {
+        //Not a transport failure (e.g. the payload could not be serialized), the permit must not be kept
+        attemptEnded(uri, start, 0);
+        release(breaker);
+        throw e;
+      }
+      attemptEnded(uri, start, response.getStatus());
+      recordOutcome(breaker, response.getStatus());
+
+      // If the response status code does not start with 2 the request was not successful
+      if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
+        boolean retry = isRetryableResponse(response) && canRetry(attempt, maxAttempts, deadline);
+        try {
+          handleException(response, uri);
+        } catch (ArrowheadException e) {
+          if (!retry) {
+            throw e;
+          }
+          lastError = e;
+          response.close();
+          continue;
+        }
+      }
+
+      return response;
+    }
+  }
+
   public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext) {
+    return sendRequest(uri, method, payload, givenContext, RequestOptions.DEFAULT);
+  }
+
+  public static <T> Response sendRequest(String uri, String method, T payload) {
+    return sendRequest(uri, method, payload, null, RequestOptions.DEFAULT);
+  }
+
+  /*
+    Sends the request, reads the response entity into the given class and closes the response deterministically, so the underlying connection
+    can be reused. Use Void.class as the response type for fire-and-forget calls (e.g. registrations): the body is drained and dropped, and
+    null is returned. Errors are thrown the same way as in sendRequest.
+   */
+  public static <T, R> R exchange(String uri, String method, T payload, Class<R> responseType, SSLContext givenContext, RequestOptions options) {
+    if (options.isCoalesce() && "GET".equals(method)) {
+      return coalescer.execute(new RequestCoalescer.Key(method, uri, givenContext, responseType), resolveDeadline(options),
+                               () -> readAndClose(sendRequest(uri, method, payload, givenContext, options), responseType));
+    }
+    return readAndClose(sendRequest(uri, method, payload, givenContext, options), responseType);
+  }
+
+  public static <T, R> R exchange(String uri, String method, T payload, Class<R> responseType, SSLContext givenContext) {
+    return exchange(uri, method, payload, responseType, givenContext, RequestOptions.DEFAULT);
+  }
+
+  public static <T, R> R exchange(String uri, String method, T payload, Class<R> responseType) {
+    return exchange(uri, method, payload, responseType, null, RequestOptions.DEFAULT);
+  }
+
+  /*
+    Non-blocking version of sendRequest: the request is executed on a bounded, shared executor (http_async_threads, http_async_queue_size), so
+    the calling thread is not parked (not even during the backoff between retries). The returned stage completes with the same Response, or
+    fails with the same ArrowheadException subtypes as the blocking version would throw. The stage fails as soon as the deadline expires.
+   */
+  public static <T> CompletionStage<Response> sendRequestAsync(String uri, String method, T payload, SSLContext givenContext,
+                                                               RequestOptions options) {
+    AsyncRequest<T> request;
+    ClientRegistry.Lease lease = null;
+    try {
+      validateMethod(method);
+      lease = leaseClient(uri, givenContext);
+      request = new AsyncRequest<>(prepareRequest(uri, lease), uri, method, payload, resolveDeadline(options),
+                                   retryPolicy.startRequest(method, options));
+    } catch (RuntimeException e) {
+      if (lease != null) {
+        lease.release();
+      }
+      return failedStage(e);
+    }
+    if (lease != null) {
+      ClientRegistry.Lease usedLease = lease;
+      request.result.whenComplete((response, error) -> usedLease.release());
+    }
+
+    if (request.deadline != null) {
+      try {
+        ScheduledFuture<?> timer = scheduler.schedule(() -> request.result.completeExceptionally(Deadline.exceeded(uri, null)),
+                                                      Math.max(0, request.deadline.getRemaining()), TimeUnit.MILLISECONDS);
+        request.result.whenComplete((response, error) -> timer.cancel(false));
+      } catch (RejectedExecutionException e) {
+        //Completing the result releases the lease as well
+        request.result.completeExceptionally(e);
+        return request.result;
+      }
+    }
+    sendAttemptAsync(request, 1, null);
+    return request.result;
+  }
+
+  public static <T> CompletionStage<Response> sendRequestAsync(String uri, String method, T payload, SSLContext givenContext) {
+    return sendRequestAsync(uri, method, payload, givenContext, RequestOptions.DEFAULT);
+  }
+
+  public static <T> CompletionStage<Response> sendRequestAsync(String uri, String method, T payload) {
+    return sendRequestAsync(uri, method, payload, null, RequestOptions.DEFAULT);
+  }
+
+  //Asynchronous version of exchange: the response entity is read into the given class (or dropped for Void.class), then the response is closed
+  public static <T, R> CompletionStage<R> sendRequestAsync(String uri, String method, T payload, Class<R> responseType, SSLContext givenContext,
+                                                           RequestOptions options) {
+    if (options.isCoalesce() && "GET".equals(method)) {
+      return coalescer.executeAsync(new RequestCoalescer.Key(method, uri, givenContext, responseType),
+                                    () -> sendRequestAsync(uri, method, payload, givenContext, options)
+                                        .thenApply(response -> readAndClose(response, responseType)));
+    }
+    return sendRequestAsync(uri, method, payload, givenContext, options).thenApply(response -> readAndClose(response, responseType));
+  }
+
+  public static <T, R> CompletionStage<R> sendRequestAsync(String uri, String method, T payload, Class<R> responseType, SSLContext givenContext) {
+    return sendRequestAsync(uri, method, payload, responseType, givenContext, RequestOptions.DEFAULT);
+  }
+
+  public static <T, R> CompletionStage<R> sendRequestAsync(String uri, String method, T payload, Class<R> responseType) {
+    return sendRequestAsync(uri, method, payload, responseType, null, RequestOptions.DEFAULT);
+  }
+
+  //One attempt of an asynchronous request, completes the result or schedules the next attempt after the backoff
+  private static <T> void sendAttemptAsync(AsyncRequest<T> request, int attempt, ArrowheadException lastError) {
+    String uri = request.uri;
+    CompletableFuture<Response> result = request.result;
+    if (result.isDone()) {
+      //The deadline expired during the backoff
+      return;
+    }
+    CircuitBreaker breaker;
+    CompletionStage<Response> stage;
+    try {
+      applyDeadline(request.builder, request.deadline, uri, lastError);
+      breaker = acquireCircuitBreaker(uri);
+    } catch (UnavailableServerException e) {
+      result.completeExceptionally(lastError != null && e.getErrorCode() != Status.GATEWAY_TIMEOUT.getStatusCode() ? lastError : e);
+      return;
+    }
+    long start = attemptStarted(uri);
+    try {
+      stage = invokeAsync(request.builder.rx(), request.method, request.payload);
+    } catch (RejectedExecutionException e) {
+      attemptEnded(uri, start, 0);
+      release(breaker);
+      result.completeExceptionally(
+          new UnavailableServerException("Too many asynchronous requests in progress, request to " + uri + " was rejected", 503, e));
+      return;
+    } catch (RuntimeException e) {
+      attemptEnded(uri, start, 0);
+      release(breaker);
+      result.completeExceptionally(e);
+      return;
+    }
+
+    stage.whenComplete((response, error) -> {
+      attemptEnded(uri, start, response != null ? response.getStatus() : 0);
+      ArrowheadException failure;
+      if (error != null) {
+        Throwable cause = unwrapCompletionException(error);
+        if (!(cause instanceof ProcessingException)) {
+          release(breaker);
+          result.completeExceptionally(cause instanceof RuntimeException ? cause : new ArrowheadException("Request to " + uri + " failed", cause));
+          return;
+        }
+        if (request.deadline != null && request.deadline.isExpired()) {
+          release(breaker);
+          result.completeExceptionally(Deadline.exceeded(uri, cause));
+          return;
+        }
+        failure = mapProcessingException((ProcessingException) cause, uri);
+        recordOutcome(breaker, failure);
+        if (!(failure instanceof UnavailableServerException && canRetry(attempt, request.maxAttempts, request.deadline))) {
+          result.completeExceptionally(failure);
+          return;
+        }
+      } else {
+        recordOutcome(breaker, response.getStatus());
+        if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+          complete(result, response);
+          return;
+        }
+        boolean retry = isRetryableResponse(response) && canRetry(attempt, request.maxAttempts, request.deadline);
+        try {
+          handleException(response, uri);
+          complete(result, response);
+          return;
+        } catch (ArrowheadException e) {
+          if (!retry) {
+            result.completeExceptionally(e);
+            return;
+          }
+          failure = e;
+          response.close();
+        }
+      }
+
+      try {
+        scheduler.schedule(() -> sendAttemptAsync(request, attempt + 1, failure), getBackoff(attempt, request.deadline), TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        result.completeExceptionally(failure);
+      }
+    });
+  }
+
+  //A response arriving after the result already failed (e.g. the deadline expired) is nobody's to close
+  private static void complete(CompletableFuture<Response> result, Response response) {
+    if (!result.complete(response)) {
+      response.close();
+    }
+  }
+
+  //State shared by the attempts of an asynchronous request
+  private static final class AsyncRequest<T> {
+
+    private final Builder builder;
+    private final String uri;
+    private final String method;
+    private final T payload;
+    private final Deadline deadline;
+    private final int maxAttempts;
+    private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+    private AsyncRequest(Builder builder, String uri, String method, T payload, Deadline deadline, int maxAttempts) {
+      this.builder = builder;
+      this.uri = uri;
+      this.method = method;
+      this.payload = payload;
+      this.deadline = deadline;
+      this.maxAttempts = maxAttempts;
+    }
+  }
+
+  private static <T> Response invoke(Builder request, String method, T payload) {
+    switch (method) {
+      case "GET":
+        return request.get();
+      case "POST":
+        return request.post(Entity.json(payload));
+      case "PUT":
+        return request.put(Entity.json(payload));
+      case "DELETE":
+        return request.delete();
+      default:
+        throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+    }
+  }
+
+  private static <T> CompletionStage<Response> invokeAsync(CompletionStageRxInvoker invoker, String method, T payload) {
+    switch (method) {
+      case "GET":
+        return invoker.get();
+      case "POST":
+        return invoker.post(Entity.json(payload));
+      case "PUT":
+        return invoker.put(Entity.json(payload));
+      case "DELETE":
+        return invoker.delete();
+      default:
+        throw new NotAllowedException("Invalid method type was given to the Utility.sendRequestAsync() method");
+    }
+  }
+
+  //Hit/miss counters and size of the response cache (null if the cache is disabled in the config files)
+  public static ResponseCacheStats getResponseCacheStats() {
+    return responseCache != null ? responseCache.getStats() : null;
+  }
+
+  /*
+    Latency statistics of the request phases (RequestPhase), keyed by destination (scheme://host:port). Empty if the latency breakdown is disabled
+    in the config files.
+   */
+  public static Map<String, Map<RequestPhase, LatencyStats>> getLatencyBreakdown() {
+    return LatencyBreakdown.getStats();
+  }
+
+  //Validates the URL and selects the Jersey client to use based on the URL scheme and the optional SSLContext
+  //Secure clients are leased, so the registry does not close them (when evicted, released or replaced by setSSLContext) while the request runs
+  private static ClientRegistry.Lease leaseClient(String uri, SSLContext givenContext) {
+    if (uri == null || !uri.startsWith("https")) {
+      return null;
+    }
+    return givenContext != null ? sslClients.acquire(givenContext) : sslClients.acquireDefault();
+  }
+
+  private static Builder prepareRequest(String uri, ClientRegistry.Lease lease) {
     boolean isSecure = false;
     if (uri == null) {
       throw new NullPointerException("send (HTTP) request method received null URL");
@@ -106,61 +560,248 @@ public final class Utility {
       isSecure = true;
     }
 
-    if (isSecure && sslClient == null) {
+    if (isSecure && lease == null) {
       throw new AuthException(
           "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests to secure modules.",
           Status.UNAUTHORIZED.getStatusCode());
     }
-    Client usedClient = isSecure ? givenContext != null ? createClient(givenContext) : sslClient : client;
+    Client usedClient = isSecure ? lease.getClient() : client;
+
+    return usedClient.target(UriBuilder.fromUri(uri).build()).request().header("Content-type", "application/json");
+  }
+
+  private static void validateMethod(String method) {
+    if (!("GET".equals(method) || "POST".equals(method) || "PUT".equals(method) || "DELETE".equals(method))) {
+      throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+    }
+  }
+
+  //The deadline of the call: the sooner of its own timeout and the deadline of the inbound request served by the current thread
+  private static Deadline resolveDeadline(RequestOptions options) {
+    Deadline deadline = options.getTimeout() > 0 ? Deadline.after(options.getTimeout()) : null;
+    return Deadline.earliest(deadline, Deadline.current());
+  }
+
+  //Bounds the timeouts of the next attempt by the remaining time, and tells it to the receiver
+  private static void applyDeadline(Builder request, Deadline deadline, String uri, ArrowheadException lastError) {
+    if (deadline == null) {
+      return;
+    }
+    long remaining = deadline.getRemaining();
+    if (remaining <= 0) {
+      throw Deadline.exceeded(uri, lastError);
+    }
+    int timeout = (int) Math.min(remaining, DEFAULT_TIMEOUT);
+    request.property(ClientProperties.CONNECT_TIMEOUT, timeout).property(ClientProperties.READ_TIMEOUT, timeout);
+    //A null value removes the header set by the previous attempt
+    request.header(Deadline.HEADER, null).header(Deadline.HEADER, remaining);
+  }
+
+  private static boolean canRetry(int attempt, int maxAttempts, Deadline deadline) {
+    return (deadline == null || !deadline.isExpired()) && retryPolicy.canRetry(attempt, maxAttempts);
+  }
+
+  //The backoff never waits beyond the deadline, the next attempt fails right away if the time is up
+  private static long getBackoff(int retry, Deadline deadline) {
+    long backoff = retryPolicy.getBackoff(retry);
+    return deadline != null ? Math.max(0, Math.min(backoff, deadline.getRemaining())) : backoff;
+  }
+
+  //Fails fast (without sending anything), if the circuit breaker of the destination is open
+  private static CircuitBreaker acquireCircuitBreaker(String uri) {
+    CircuitBreaker breaker = circuitBreakers.get(URI.create(uri));
+    if (breaker != null && !breaker.tryAcquire()) {
+      throw new UnavailableServerException(
+          "Circuit breaker is open for " + breaker.getDestination() + " (retry in " + breaker.getRemainingOpenTime() + " ms), request to " + uri
+              + " was not sent", Status.SERVICE_UNAVAILABLE.getStatusCode());
+    }
+    return breaker;
+  }
+
+  //Gives back the permit of a call which could not be sent at all
+  private static void release(CircuitBreaker breaker) {
+    if (breaker != null) {
+      breaker.release();
+    }
+  }
+
+  //Gateway errors and unavailability mean the destination is unhealthy, every other response counts as a healthy answer
+  private static void recordOutcome(CircuitBreaker breaker, int status) {
+    if (breaker == null) {
+      return;
+    }
+    if (status == Status.BAD_GATEWAY.getStatusCode() || status == Status.SERVICE_UNAVAILABLE.getStatusCode()
+        || status == Status.GATEWAY_TIMEOUT.getStatusCode()) {
+      breaker.onFailure();
+    } else {
+      breaker.onSuccess();
+    }
+  }
+
+  private static void recordOutcome(CircuitBreaker breaker, ArrowheadException error) {
+    if (breaker == null) {
+      return;
+    }
+    if (error instanceof UnavailableServerException) {
+      breaker.onFailure();
+    } else {
+      breaker.onSuccess();
+    }
+  }
+
+  public static void addRequestListener(RequestListener listener) {
+    requestListeners.add(listener);
+  }
+
+  public static void removeRequestListener(RequestListener listener) {
+    requestListeners.remove(listener);
+  }
+
+  //Notifies the listeners about a new attempt, and returns its start time
+  private static long attemptStarted(String uri) {
+    for (RequestListener listener : requestListeners) {
+      listener.onAttemptStart(uri);
+    }
+    return System.nanoTime();
+  }
+
+  private static void attemptEnded(String uri, long start, int status) {
+    if (requestListeners.isEmpty()) {
+      return;
+    }
+    long latency = System.nanoTime() - start;
+    for (RequestListener listener : requestListeners) {
+      listener.onAttemptEnd(uri, latency, status);
+    }
+  }
+
+  //State of the circuit breakers, keyed by destination (scheme://host:port)
+  public static Map<String, CircuitBreaker.State> getCircuitBreakerStates() {
+    return circuitBreakers.getStates();
+  }
 
-    Builder request = usedClient.target(UriBuilder.fromUri(uri).build()).request().header("Content-type", "application/json");
-    Response response; // will not be null after the switch-case
+  //Peeks into the ErrorMessage of a 503/504 response (the entity is buffered, so handleException can still read it) to see if it is transient
+  private static boolean isRetryableResponse(Response response) {
+    if (!RetryPolicy.isRetryableStatus(response.getStatus())) {
+      return false;
+    }
+    ExceptionType exceptionType = null;
     try {
-      switch (method) {
-        case "GET":
-          response = request.get();
-          break;
-        case "POST":
-          response = request.post(Entity.json(payload));
-          break;
-        case "PUT":
-          response = request.put(Entity.json(payload));
-          break;
-        case "DELETE":
-          response = request.delete();
-          break;
-        default:
-          throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+      response.bufferEntity();
+      ErrorMessage errorMessage = response.hasEntity() ? response.readEntity(ErrorMessage.class) : null;
+      exceptionType = errorMessage != null ? errorMessage.getExceptionType() : null;
+    } catch (RuntimeException e) {
+      //Not an Arrowhead ErrorMessage (e.g. a gateway error page), treated as transient
+    }
+    return RetryPolicy.isRetryable(response.getStatus(), exceptionType);
+  }
+
+  private static ArrowheadException mapProcessingException(ProcessingException e, String uri) {
+    Throwable cause = e.getCause() != null ? e.getCause() : e;
+    if (cause.getMessage() != null && cause.getMessage().contains("PKIX path")) {
+      return new AuthException("The system at " + uri + " is not part of the same certificate chain of trust!", Status.UNAUTHORIZED.getStatusCode(),
+                               e);
+    } else {
+      return new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+    }
+  }
+
+  //Reads the entity into the given class (or drops it for Void.class), then closes the response, so the connection can be reused
+  public static <R> R readAndClose(Response response, Class<R> responseType) {
+    try {
+      if (responseType == Void.class) {
+        discardEntity(response);
+        return null;
       }
-    } catch (ProcessingException e) {
-      if (e.getCause().getMessage().contains("PKIX path")) {
-        throw new AuthException("The system at " + uri + " is not part of the same certificate chain of trust!", Status.UNAUTHORIZED.getStatusCode(),
-                                e);
-      } else {
-        throw new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+      //Jackson stops at the end of the JSON value, the buffering reads the body to EOF, otherwise closing the response would abort the connection
+      response.bufferEntity();
+      return response.readEntity(responseType);
+    } finally {
+      response.close();
+    }
+  }
+
+  //Reads the remaining response body without processing it, connectors can only keep a connection alive if its response was fully consumed
+  private static void discardEntity(Response response) {
+    if (!response.hasEntity()) {
+      return;
+    }
+    try (InputStream is = response.readEntity(InputStream.class)) {
+      byte[] buffer = new byte[4096];
+      //noinspection StatementWithEmptyBody
+      while (is.read(buffer) != -1) {
       }
+    } catch (IOException e) {
+      //The connection will not be reused, but the request itself was successful
     }
+  }
 
-    // If the response status code does not start with 2 the request was not successful
-    if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
-      handleException(response, uri);
+  //Seconds from the Retry-After header (given in seconds or as a HTTP date), 0 if it is missing or invalid
+  private static long getRetryAfter(Response response) {
+    String retryAfter = response.getHeaderString("Retry-After");
+    if (retryAfter == null) {
+      return 0;
     }
+    try {
+      return Math.max(0, Long.parseLong(retryAfter.trim()));
+    } catch (NumberFormatException e) {
+      try {
+        ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+        return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).getSeconds());
+      } catch (DateTimeParseException e1) {
+        return 0;
+      }
+    }
+  }
 
-    return response;
+  private static <T> CompletionStage<T> failedStage(Throwable error) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(error);
+    return future;
   }
 
-  public static <T> Response sendRequest(String uri, String method, T payload) {
-    return sendRequest(uri, method, payload, null);
+  //The cause of a CompletionException (the dependent stages wrap the error of the stage they depend on), or the error itself
+  public static Throwable unwrapCompletionException(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+  }
+
+  //The error of a failed stage as an ArrowheadException: ArrowheadExceptions are returned as they are, the rest is wrapped with the message
+  public static ArrowheadException toArrowheadException(Throwable error, String message) {
+    Throwable cause = unwrapCompletionException(error);
+    if (cause instanceof ArrowheadException) {
+      return (ArrowheadException) cause;
+    }
+    return new ArrowheadException(message + ": " + cause.getMessage(), cause);
+  }
+
+  //Waits for the stage, and throws its error unwrapped (if it is a RuntimeException), like the blocking version of the call would
+  public static <T> T join(CompletionStage<T> stage) {
+    try {
+      return stage.toCompletableFuture().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
   }
 
   private static void handleException(Response response, String uri) {
-    //The response body has to be extracted before the stream closes
-    String errorMessageBody = toPrettyJson(null, response.getEntity());
+    //The response body has to be extracted before the stream closes (client side responses only have the raw stream as entity)
+    Object entity = response.getEntity();
+    String errorMessageBody = entity instanceof InputStream ? null : toPrettyJson(null, entity);
     if (errorMessageBody == null || errorMessageBody.equals("null")) {
       response.bufferEntity();
       errorMessageBody = response.readEntity(String.class);
     }
 
+    if (response.getStatus() == Status.TOO_MANY_REQUESTS.getStatusCode()) {
+      //Throttled, not failed: the failover must not handle the destination as unavailable
+      System.out.println("Request throttled, response body: " + errorMessageBody);
+      throw new TooManyRequestsException("Too many requests sent to " + uri + ", the quota of this client is exceeded.", response.getStatus(), uri,
+                                         getRetryAfter(response));
+    }
+
     ErrorMessage errorMessage;
     try {
       errorMessage = response.readEntity(ErrorMessage.class);
@@ -366,6 +1007,15 @@ public final class Utility {
     }
   }
 
+  //Same as getProp(), but falls back to an empty property set when the config files are missing (used during class initialization)
+  private static TypeSafeProperties getClientProp() {
+    try {
+      return getProp();
+    } catch (ServiceConfigurationError e) {
+      return new TypeSafeProperties();
+    }
+  }
+
   public static boolean isHostAvailable(String host, int port, int timeout) {
     try (Socket socket = new Socket()) {
       socket.connect(new InetSocketAddress(host, port), timeout);
@@ -0,0 +1,22 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.exception;
+
+/**
+ * Thrown when a request (with all of its retries) could not finish before its deadline (see eu.arrowhead.client.common.http.Deadline). Unlike its parent, it says nothing about the
+ * health of the destination, only that the caller ran out of time.
+ */
+public class DeadlineExceededException extends UnavailableServerException {
+
+  public DeadlineExceededException(String msg, int errorCode, Throwable cause) {
+    super(msg, errorCode, cause);
+  }
+
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.exception;
+
+/**
+ * Thrown when a server rejected the request with 429 Too Many Requests, because the client exceeded its request quota (see the
+ * <i>RateLimitFilter</i>). The server is healthy, it only asks the client to slow down, so this is not an <i>UnavailableServerException</i>.
+ */
+public class TooManyRequestsException extends ArrowheadException {
+
+  //Seconds from the Retry-After header of the response (0 if the server did not send one)
+  private final long retryAfter;
+
+  public TooManyRequestsException(final String msg, final int errorCode, final String origin, final long retryAfter) {
+    super(msg, errorCode, origin);
+    this.retryAfter = retryAfter;
+  }
+
+  public TooManyRequestsException(String msg, int errorCode, long retryAfter) {
+    super(msg, errorCode);
+    this.retryAfter = retryAfter;
+  }
+
+  public long getRetryAfter() {
+    return retryAfter;
+  }
+
+}
@@ -11,7 +11,6 @@ package eu.arrowhead.client.common.filter;
 
 import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.AuthException;
-import eu.arrowhead.client.common.misc.SecurityUtils;
 import javax.annotation.Priority;
 import javax.inject.Inject;
 import javax.ws.rs.Priorities;
@@ -38,49 +37,26 @@ public class AccessControlFilter implements ContainerRequestFilter {
     SecurityContext sc = requestContext.getSecurityContext();
     String requestTarget = Utility.stripEndSlash(requestContext.getUriInfo().getRequestUri().toString());
     if (sc.isSecure()) {
-      String subjectName = sc.getUserPrincipal().getName();
-      if (isClientAuthorized(subjectName)) {
-        System.out.println("SSL identification is successful! Cert: " + subjectName);
+      ClientIdentity identity = ClientIdentity.of(sc.getUserPrincipal());
+      if (isClientAuthorized(identity, requestContext.getUriInfo().getPath())) {
+        System.out.println("SSL identification is successful! Cert: " + identity.getName());
       } else {
-        throw new AuthException(SecurityUtils.getCertCNFromSubject(subjectName) + " is unauthorized to access " + requestTarget);
+        throw new AuthException(identity.getCommonName() + " is unauthorized to access " + requestTarget);
       }
     }
   }
 
   /*
-    NOTE right now, every client has the same access control strategy: only requests from the local Cloud are allowed
-    NOTE this method should be modified for customized behaviour
+    NOTE the rules can be customized with the access_control_rules property in the config file (see AccessPolicy), by default only requests
+    from the local Cloud are allowed
    */
-  private boolean isClientAuthorized(String subjectName) {
-    //Logic can be different for each client type in this project
-    String clientType = System.getProperty("client_type");
-    switch (clientType) {
-      case "PROVIDER":
-        break;
-      case "CONSUMER":
-        break;
-      case "SUBSCRIBER":
-        break;
-      case "PUBLISHER":
-        break;
-      default:
-        break;
-    }
-
-    String clientCN = SecurityUtils.getCertCNFromSubject(subjectName);
-    String serverCN = (String) configuration.getProperty("server_common_name");
-
-    if (!SecurityUtils.isKeyStoreCNArrowheadValid(clientCN)) {
+  private boolean isClientAuthorized(ClientIdentity identity, String path) {
+    if (!identity.isArrowheadCompliant()) {
       System.out.println("Client cert does not have 5 parts, so the access will be denied.");
       return false;
     }
-    // All requests from the local cloud are allowed, so omit the first part of the common names (systemName)
-    String[] serverFields = serverCN.split("\\.", 2);
-    String[] clientFields = clientCN.split("\\.", 2);
-    // serverFields contains: systemName, cloudName.operator.arrowhead.eu
-
-    // If this is true, then the certificates are from the same cloud
-    return serverFields[1].equalsIgnoreCase(clientFields[1]);
+    AccessPolicy policy = (AccessPolicy) configuration.getProperty(AccessPolicy.PROPERTY);
+    return policy.isAllowed(identity, path);
   }
 
 }
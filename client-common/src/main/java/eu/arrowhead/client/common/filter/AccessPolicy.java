@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/*
+  Access control rules of the secure web server, compiled once at startup from the access_control_rules config property:
+    <path prefix>:<allowed client>,<allowed client>;<path prefix>:...
+  The rule with the longest path prefix matching the request path applies (matched on whole path segments, "/" matches every path). Requests
+  to paths without a matching rule are denied. An allowed client can be:
+    local_cloud: any system from the same cloud as this system (the common names only differ in the system name)
+    a common name pattern with * wildcards: *.testcloud2.aitia.arrowhead.eu
+    a full common name: client1.testcloud1.aitia.arrowhead.eu
+    a system name (without dots): client1, the client has to be from the local cloud too
+  The rule is evaluated for every request, its matchers only compare the parts of the common name parsed once per TLS session (ClientIdentity).
+ */
+public final class AccessPolicy {
+
+  //Name of the ResourceConfig property holding the compiled policy of the web server
+  public static final String PROPERTY = "access_control_policy";
+  public static final String LOCAL_CLOUD = "local_cloud";
+
+  private final PathRules<Rule> rules;
+
+  private AccessPolicy(PathRules<Rule> rules) {
+    this.rules = rules;
+  }
+
+  //The rules from the config file (only local cloud clients are allowed by default)
+  public static AccessPolicy fromProperties(TypeSafeProperties props, String serverCN) {
+    return compile(props.getProperty("access_control_rules", "/:" + LOCAL_CLOUD), serverCN);
+  }
+
+  public static AccessPolicy compile(String rules, String serverCN) {
+    String[] serverFields = serverCN.split("\\.", 2);
+    String localCloud = serverFields.length > 1 ? serverFields[1] : "";
+
+    return new AccessPolicy(PathRules.parse(rules, "access_control_rules", clients -> {
+      List<Predicate<ClientIdentity>> matchers = new ArrayList<>();
+      for (String client : clients.split(",")) {
+        if (!client.trim().isEmpty()) {
+          matchers.add(compileMatcher(client.trim(), localCloud));
+        }
+      }
+      return new Rule(matchers);
+    }));
+  }
+
+  //The path is relative to the base URI of the web server (leading and trailing slashes are ignored)
+  public boolean isAllowed(ClientIdentity identity, String path) {
+    Rule rule = rules.get(path);
+    return rule != null && rule.isAllowed(identity);
+  }
+
+  private static Predicate<ClientIdentity> compileMatcher(String client, String localCloud) {
+    if (client.equalsIgnoreCase(LOCAL_CLOUD)) {
+      return identity -> identity.getCloudSegment().equalsIgnoreCase(localCloud);
+    }
+    if (client.contains("*")) {
+      StringBuilder regex = new StringBuilder();
+      for (String part : client.split("\\*", -1)) {
+        if (regex.length() > 0) {
+          regex.append(".*");
+        }
+        regex.append(Pattern.quote(part));
+      }
+      Pattern pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+      return identity -> pattern.matcher(identity.getCommonName()).matches();
+    }
+    if (client.contains(".")) {
+      return identity -> identity.getCommonName().equalsIgnoreCase(client);
+    }
+    return identity -> identity.getSystemName().equalsIgnoreCase(client) && identity.getCloudSegment().equalsIgnoreCase(localCloud);
+  }
+
+  private static class Rule {
+
+    private final List<Predicate<ClientIdentity>> matchers;
+
+    Rule(List<Predicate<ClientIdentity>> matchers) {
+      this.matchers = matchers;
+    }
+
+    boolean isAllowed(ClientIdentity identity) {
+      for (Predicate<ClientIdentity> matcher : matchers) {
+        if (matcher.test(identity)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import eu.arrowhead.client.common.misc.SecurityUtils;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.function.Supplier;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+/*
+  Identity of a client, parsed from its certificate once per TLS session. The SecurityFilter resolves it for every secure request and uses it as
+  the user principal, so the filters and resources can read the common name and its parts without parsing the subject again. getName() returns
+  the full subject (as the principal did before), the common name of an Arrowhead certificate is systemName.cloudName.operator.arrowhead.eu.
+ */
+public final class ClientIdentity implements Principal {
+
+  //The identity is stored in the SSLSession under this name, so it lives (and is shared by the requests) as long as the session
+  private static final String SESSION_VALUE = ClientIdentity.class.getName();
+
+  private final String subjectName;
+  private final String commonName;
+  private final String systemName;
+  private final String cloudSegment;
+  private final boolean arrowheadCompliant;
+
+  public ClientIdentity(String subjectName) {
+    this.subjectName = subjectName;
+    this.commonName = SecurityUtils.getCertCNFromSubject(subjectName);
+    String[] commonNameParts = commonName.split("\\.", 2);
+    this.systemName = commonNameParts[0];
+    this.cloudSegment = commonNameParts.length > 1 ? commonNameParts[1] : "";
+    this.arrowheadCompliant = SecurityUtils.isKeyStoreCNArrowheadValid(commonName);
+  }
+
+  /*
+    The identity cached in the session, or a new one parsed from the first peer certificate of the session (and cached in the session). The
+    fallback chain is only used when there is no session, or the peer certificates can not be read from it. Returns null if there is no client
+    certificate.
+   */
+  public static ClientIdentity resolve(SSLSession session, Supplier<X509Certificate[]> fallbackChain) {
+    Certificate[] certificates = null;
+    if (session != null) {
+      Object cached = session.getValue(SESSION_VALUE);
+      if (cached instanceof ClientIdentity) {
+        return (ClientIdentity) cached;
+      }
+      try {
+        certificates = session.getPeerCertificates();
+      } catch (SSLPeerUnverifiedException e) {
+        //No client certificate in this session, the fallback is checked below
+      }
+    }
+    if (certificates == null || certificates.length == 0) {
+      certificates = fallbackChain.get();
+    }
+    if (certificates == null || certificates.length == 0 || !(certificates[0] instanceof X509Certificate)) {
+      return null;
+    }
+    ClientIdentity identity = new ClientIdentity(((X509Certificate) certificates[0]).getSubjectDN().getName());
+    if (session != null) {
+      session.putValue(SESSION_VALUE, identity);
+    }
+    return identity;
+  }
+
+  //The identity behind the given principal (parsing its name, if it is not a ClientIdentity already)
+  public static ClientIdentity of(Principal principal) {
+    return principal instanceof ClientIdentity ? (ClientIdentity) principal : new ClientIdentity(principal.getName());
+  }
+
+  //The full subject of the certificate
+  @Override
+  public String getName() {
+    return subjectName;
+  }
+
+  //Empty, if the subject has no CN field
+  public String getCommonName() {
+    return commonName;
+  }
+
+  //First part of the common name
+  public String getSystemName() {
+    return systemName;
+  }
+
+  //The common name without the system name (cloudName.operator.arrowhead.eu), empty if the common name has only 1 part
+  public String getCloudSegment() {
+    return cloudSegment;
+  }
+
+  //True if the common name has 5 parts and ends with arrowhead.eu
+  public boolean isArrowheadCompliant() {
+    return arrowheadCompliant;
+  }
+
+  @Override
+  public String toString() {
+    return subjectName;
+  }
+
+}
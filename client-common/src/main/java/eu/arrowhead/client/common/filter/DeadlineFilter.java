@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import eu.arrowhead.client.common.exception.UnavailableServerException;
+import eu.arrowhead.client.common.http.Deadline;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100) //Runs before the SecurityFilter, requests the caller already abandoned are not worth authenticating
+/*
+  Reads the remaining time budget of the caller (Deadline.HEADER) and makes it the Deadline of the thread serving the request, so the requests
+  sent by the resource through Utility stop when the caller stops waiting. Requests arriving with an exhausted budget are rejected right away.
+ */
+public class DeadlineFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    //Worker threads are reused, a deadline can not be left over from a previous request
+    Deadline.setCurrent(null);
+    String header = requestContext.getHeaderString(Deadline.HEADER);
+    if (header == null) {
+      return;
+    }
+
+    long remaining;
+    try {
+      remaining = Long.parseLong(header.trim());
+    } catch (NumberFormatException e) {
+      System.out.println("Invalid " + Deadline.HEADER + " header value (" + header + "), the request is served without a deadline");
+      return;
+    }
+    if (remaining <= 0) {
+      throw new UnavailableServerException(
+          "The deadline of the caller expired before " + requestContext.getUriInfo().getRequestUri() + " could be served",
+          Status.GATEWAY_TIMEOUT.getStatusCode());
+    }
+    Deadline.setCurrent(Deadline.after(remaining));
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+    Deadline.setCurrent(null);
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.function.Function;
+
+/*
+  Values assigned to path prefixes, parsed from a config property in the <path prefix>:<value>;<path prefix>:<value> format. A request path
+  gets the value of the longest prefix matching it on whole path segments ("/" matches every path). The prefixes are compiled into a trie of
+  path segments, so the lookup takes 1 map lookup per segment of the request path, regardless of the number of rules.
+ */
+final class PathRules<T> {
+
+  private final Node<T> root;
+
+  private PathRules(Node<T> root) {
+    this.root = root;
+  }
+
+  //The name of the config property is only used in the error messages
+  static <T> PathRules<T> parse(String rules, String propertyName, Function<String, T> valueParser) {
+    Node<T> root = new Node<>();
+    for (String rule : rules.split(";")) {
+      if (rule.trim().isEmpty()) {
+        continue;
+      }
+      String[] parts = rule.split(":", 2);
+      if (parts.length < 2 || parts[1].trim().isEmpty()) {
+        throw new ServiceConfigurationError(propertyName + " rule \"" + rule.trim() + "\" has no value! (Format: <path>:<value>;...)");
+      }
+      String prefix = normalize(parts[0]);
+      Node<T> node = root;
+      if (!prefix.isEmpty()) {
+        for (String segment : prefix.split("/", -1)) {
+          node = node.children.computeIfAbsent(segment, key -> new Node<>());
+        }
+      }
+      if (node.hasRule) {
+        throw new ServiceConfigurationError("More than one " + propertyName + " rule is given for the path \"/" + prefix + "\"");
+      }
+      node.hasRule = true;
+      node.value = valueParser.apply(parts[1].trim());
+    }
+    return new PathRules<>(root);
+  }
+
+  //The value of the longest matching prefix, or null. The path is relative to the base URI (leading and trailing slashes are ignored).
+  T get(String path) {
+    int start = 0;
+    int end = path.length();
+    while (start < end && path.charAt(start) == '/') {
+      start++;
+    }
+    while (end > start && path.charAt(end - 1) == '/') {
+      end--;
+    }
+
+    Node<T> node = root;
+    T match = root.value;
+    while (start < end && !node.children.isEmpty()) {
+      int separator = path.indexOf('/', start);
+      if (separator == -1 || separator > end) {
+        separator = end;
+      }
+      node = node.children.get(path.substring(start, separator));
+      if (node == null) {
+        break;
+      }
+      if (node.hasRule) {
+        match = node.value;
+      }
+      start = separator + 1;
+    }
+    return match;
+  }
+
+  private static String normalize(String path) {
+    String normalized = path.trim();
+    while (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    while (normalized.endsWith("/")) {
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    return normalized;
+  }
+
+  //One path segment of the trie, the value of a rule can be null too (e.g. an unlimited rate limit rule)
+  private static final class Node<T> {
+
+    private final Map<String, Node<T>> children = new HashMap<>();
+    private boolean hasRule;
+    private T value;
+  }
+
+}
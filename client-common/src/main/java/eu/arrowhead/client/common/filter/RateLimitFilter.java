@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import eu.arrowhead.client.common.exception.ErrorMessage;
+import eu.arrowhead.client.common.exception.ExceptionType;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.ext.Provider;
+import org.glassfish.grizzly.http.server.Request;
+
+@Provider
+@Priority(Priorities.AUTHORIZATION + 1) //Executed right after the AccessControlFilter, so unauthorized clients are rejected before using quota
+//Rejects the requests above the quota of the client (see RateLimiter) with 429 Too Many Requests and a Retry-After header (in seconds)
+public class RateLimitFilter implements ContainerRequestFilter {
+
+  @Context
+  Configuration configuration;
+  @Inject
+  private javax.inject.Provider<Request> grizzlyRequest;
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    RateLimiter limiter = (RateLimiter) configuration.getProperty(RateLimiter.PROPERTY);
+    if (limiter == null) {
+      return;
+    }
+    SecurityContext sc = requestContext.getSecurityContext();
+    String client = sc.isSecure() && sc.getUserPrincipal() != null ? ClientIdentity.of(sc.getUserPrincipal()).getCommonName()
+                                                                   : grizzlyRequest.get().getRemoteAddr();
+    long wait = limiter.tryAcquire(client, requestContext.getUriInfo().getPath());
+    if (wait > 0) {
+      long retryAfter = Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+      ErrorMessage em = new ErrorMessage(client + " exceeded its request quota, retry after " + retryAfter + " second(s).",
+                                         Status.TOO_MANY_REQUESTS.getStatusCode(), ExceptionType.ARROWHEAD,
+                                         requestContext.getUriInfo().getAbsolutePath().toString());
+      requestContext.abortWith(Response.status(Status.TOO_MANY_REQUESTS).entity(em).type(MediaType.APPLICATION_JSON_TYPE)
+                                      .header("Retry-After", retryAfter).build());
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Request quotas of the web server per client (certificate common name in secure mode, remote address in insecure mode) and path, compiled
+  once at startup from the rate_limit_rules config property:
+    <path prefix>:<requests per second>,<burst>;<path prefix>:unlimited
+  The rule with the longest path prefix matching the request path applies (see PathRules), paths without a matching rule are not limited.
+  Every client has its own token bucket per rule. A bucket is a single AtomicLong (the time when the bucket will be full again, as in the
+  generic cell rate algorithm), updated with compare-and-set, so taking a token never blocks. Buckets of idle clients are dropped when
+  maxClients is reached, the clients above the limit share one overflow bucket per rule.
+ */
+public final class RateLimiter {
+
+  //Name of the ResourceConfig property holding the rate limiter of the web server
+  public static final String PROPERTY = "rate_limiter";
+  public static final String UNLIMITED = "unlimited";
+
+  private final PathRules<Quota> quotas;
+
+  private RateLimiter(PathRules<Quota> quotas) {
+    this.quotas = quotas;
+  }
+
+  //Returns null if rate limiting is disabled in the config file (opt-in)
+  public static RateLimiter fromProperties(TypeSafeProperties props) {
+    if (!props.getBooleanProperty("rate_limit_enabled", false)) {
+      return null;
+    }
+    return compile(props.getProperty("rate_limit_rules", "/:100,200"), Math.max(1, props.getIntProperty("rate_limit_max_clients", 4096)));
+  }
+
+  public static RateLimiter compile(String rules, int maxClients) {
+    return new RateLimiter(PathRules.parse(rules, "rate_limit_rules", quota -> {
+      if (quota.equalsIgnoreCase(UNLIMITED)) {
+        return null;
+      }
+      String[] parts = quota.split(",");
+      try {
+        int rate = Integer.parseInt(parts[0].trim());
+        int burst = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : rate;
+        if (rate > 0 && burst > 0) {
+          return new Quota(rate, burst, maxClients);
+        }
+      } catch (NumberFormatException e) {
+        //Same error as the non-positive numbers
+      }
+      throw new ServiceConfigurationError("Rate limit quota \"" + quota + "\" is invalid! (Format: <requests per second>,<burst> or unlimited)");
+    }));
+  }
+
+  /*
+    Takes a token from the bucket of the client for the given path (relative to the base URI). Returns 0 if the request is allowed, otherwise
+    the nanoseconds until the client can send its next request.
+   */
+  public long tryAcquire(String client, String path) {
+    Quota quota = quotas.get(path);
+    return quota == null ? 0 : quota.tryAcquire(client);
+  }
+
+  private static class Quota {
+
+    //Nanoseconds between 2 requests at the allowed rate, and the time the full bucket represents
+    private final long interval;
+    private final long capacity;
+    private final int maxClients;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    Quota(int rate, int burst, int maxClients) {
+      this.interval = TimeUnit.SECONDS.toNanos(1) / rate;
+      this.capacity = interval * burst;
+      this.maxClients = maxClients;
+    }
+
+    long tryAcquire(String client) {
+      long now = System.nanoTime();
+      AtomicLong bucket = buckets.get(client);
+      if (bucket == null) {
+        bucket = createBucket(client, now);
+      }
+      while (true) {
+        long fullAt = bucket.get();
+        long next = (fullAt - now > 0 ? fullAt : now) + interval;
+        long excess = next - now - capacity;
+        if (excess > 0) {
+          return excess;
+        }
+        if (bucket.compareAndSet(fullAt, next)) {
+          return 0;
+        }
+      }
+    }
+
+    private AtomicLong createBucket(String client, long now) {
+      if (buckets.size() >= maxClients) {
+        //A full bucket behaves the same as a new one, so the buckets of the idle clients can be dropped (at most once per second)
+        long last = lastEviction.get();
+        if (now - last > TimeUnit.SECONDS.toNanos(1) && lastEviction.compareAndSet(last, now)) {
+          buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+        if (buckets.size() >= maxClients) {
+          return overflow;
+        }
+      }
+      return buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+    }
+  }
+
+}
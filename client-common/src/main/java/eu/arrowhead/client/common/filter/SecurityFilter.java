@@ -12,50 +12,61 @@ package eu.arrowhead.client.common.filter;
 import java.security.Principal;
 import java.security.cert.X509Certificate;
 import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.core.SecurityContext;
-import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.ssl.SSLUtils;
 
 @Provider
 @Priority(Priorities.AUTHENTICATION) //Highest priority constant, this filter gets executed first
+//Sets the client certificate identity (ClientIdentity, parsed once per TLS session) as the user principal of the secure requests
 public class SecurityFilter implements ContainerRequestFilter {
 
-  private UriInfo uriInfo;
+  @Inject
+  private javax.inject.Provider<Request> grizzlyRequest;
 
   @Override
   public void filter(ContainerRequestContext context) {
-    X509Certificate[] chain = (X509Certificate[]) context.getProperty("javax.servlet.request.X509Certificate");
-    if (chain != null && chain.length > 0) {
-      uriInfo = context.getUriInfo();
-      String subject = chain[0].getSubjectDN().getName();
-      Authorizer securityContext = new Authorizer(subject);
-      context.setSecurityContext(securityContext);
+    if (!"https".equals(context.getUriInfo().getRequestUri().getScheme())) {
+      return;
     }
+    ClientIdentity identity = ClientIdentity
+        .resolve(getSession(), () -> (X509Certificate[]) context.getProperty("javax.servlet.request.X509Certificate"));
+    if (identity != null) {
+      context.setSecurityContext(new Authorizer(identity));
+    }
+  }
+
+  private SSLSession getSession() {
+    SSLEngine engine = SSLUtils.getSSLEngine(grizzlyRequest.get().getContext().getConnection());
+    return engine != null ? engine.getSession() : null;
   }
 
   class Authorizer implements SecurityContext {
 
-    private String user;
-    private Principal principal;
+    private final ClientIdentity identity;
 
-    Authorizer(final String user) {
-      this.user = user;
-      this.principal = () -> user;
+    Authorizer(final ClientIdentity identity) {
+      this.identity = identity;
     }
 
     public Principal getUserPrincipal() {
-      return this.principal;
+      return identity;
     }
 
     public boolean isUserInRole(String role) {
-      return (role.equals(user));
+      return (role.equals(identity.getName()));
     }
 
+    //The filter only sets this context for https requests
     public boolean isSecure() {
-      return uriInfo.getRequestUri().getScheme().equals("https");
+      return true;
     }
 
     public String getAuthenticationScheme() {
@@ -0,0 +1,137 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+/*
+  Circuit breaker of a single destination (scheme://host:port).
+    CLOSED: every call is allowed, the outcomes of the last windowSize calls are recorded. When the failure rate reaches the threshold,
+            the circuit opens.
+    OPEN: every call is rejected until openDuration passes, then the circuit becomes half open.
+    HALF_OPEN: only halfOpenCalls trial calls are allowed at the same time. If all of them succeed, the circuit closes, any failure opens it again.
+ */
+public class CircuitBreaker {
+
+  public enum State {CLOSED, OPEN, HALF_OPEN}
+
+  private final String destination;
+  private final CircuitBreakerConfig config;
+  //Ring buffer of the call outcomes in the closed state, true means failure
+  private final boolean[] window;
+
+  private State state = State.CLOSED;
+  private int windowPosition;
+  private int recordedCalls;
+  private int failedCalls;
+  private long openUntil;
+  private int halfOpenPermits;
+  private int halfOpenSuccesses;
+
+  public CircuitBreaker(String destination, CircuitBreakerConfig config) {
+    this.destination = destination;
+    this.config = config;
+    this.window = new boolean[config.getWindowSize()];
+  }
+
+  //Returns true if the call can be sent. Every allowed call has to be followed by exactly one onSuccess, onFailure or release call.
+  public synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (System.currentTimeMillis() < openUntil) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        halfOpenPermits = config.getHalfOpenCalls();
+        halfOpenSuccesses = 0;
+        //Falls through to the half open permit check
+      case HALF_OPEN:
+      default:
+        if (halfOpenPermits > 0) {
+          halfOpenPermits--;
+          return true;
+        }
+        return false;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      halfOpenSuccesses++;
+      if (halfOpenSuccesses >= config.getHalfOpenCalls()) {
+        close();
+      }
+    } else if (state == State.CLOSED) {
+      record(false);
+    }
+  }
+
+  public synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      open();
+    } else if (state == State.CLOSED) {
+      record(true);
+      if (recordedCalls >= config.getMinimumCalls() && failedCalls * 100 >= config.getFailureRateThreshold() * recordedCalls) {
+        open();
+      }
+    }
+  }
+
+  //Gives back the permit of an allowed call, which was never sent to the destination (so it says nothing about its health)
+  public synchronized void release() {
+    if (state == State.HALF_OPEN) {
+      halfOpenPermits++;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  //Milliseconds until an open circuit lets trial calls through again (0 if the circuit is not open)
+  public synchronized long getRemainingOpenTime() {
+    return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  private void record(boolean failure) {
+    if (recordedCalls == window.length) {
+      //The oldest outcome is overwritten
+      if (window[windowPosition]) {
+        failedCalls--;
+      }
+    } else {
+      recordedCalls++;
+    }
+    window[windowPosition] = failure;
+    if (failure) {
+      failedCalls++;
+    }
+    windowPosition = (windowPosition + 1) % window.length;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openUntil = System.currentTimeMillis() + config.getOpenDuration();
+    System.out.println("Circuit breaker opened for " + destination + " (for " + config.getOpenDuration() + " ms)");
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    windowPosition = 0;
+    recordedCalls = 0;
+    failedCalls = 0;
+    System.out.println("Circuit breaker closed for " + destination);
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+
+/*
+  Settings of the per destination circuit breakers used by Utility.sendRequest. Every module (client type) reads them from its own
+  default.conf/app.conf, so the thresholds can be tuned separately for consumers, providers, publishers and subscribers.
+ */
+public final class CircuitBreakerConfig {
+
+  private final boolean enabled;
+  private final int failureRateThreshold;
+  private final int windowSize;
+  private final int minimumCalls;
+  private final int openDuration;
+  private final int halfOpenCalls;
+
+  /**
+   * @param enabled when false, no circuit breaker is used at all
+   * @param failureRateThreshold failure percentage (1-100) in the window which opens the circuit
+   * @param windowSize number of the most recent calls the failure rate is calculated from
+   * @param minimumCalls number of calls needed in the window before the failure rate is evaluated
+   * @param openDuration milliseconds while an open circuit rejects every call, before letting trial calls through
+   * @param halfOpenCalls number of successful trial calls needed to close the circuit again
+   */
+  public CircuitBreakerConfig(boolean enabled, int failureRateThreshold, int windowSize, int minimumCalls, int openDuration, int halfOpenCalls) {
+    if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+      throw new IllegalArgumentException("Circuit breaker failure rate threshold must be between 1 and 100!");
+    }
+    if (windowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1 || openDuration < 0) {
+      throw new IllegalArgumentException("Circuit breaker window size, minimum calls and half open calls must be positive numbers!");
+    }
+    this.enabled = enabled;
+    this.failureRateThreshold = failureRateThreshold;
+    this.windowSize = windowSize;
+    this.minimumCalls = Math.min(minimumCalls, windowSize);
+    this.openDuration = openDuration;
+    this.halfOpenCalls = halfOpenCalls;
+  }
+
+  public static CircuitBreakerConfig fromProperties(TypeSafeProperties props) {
+    return new CircuitBreakerConfig(props.getBooleanProperty("circuit_breaker_enabled", false),
+                                    props.getIntProperty("circuit_breaker_failure_rate", 50), props.getIntProperty("circuit_breaker_window", 20),
+                                    props.getIntProperty("circuit_breaker_minimum_calls", 10),
+                                    props.getIntProperty("circuit_breaker_open_duration", 30000),
+                                    props.getIntProperty("circuit_breaker_half_open_calls", 3));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  public int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  public int getOpenDuration() {
+    return openDuration;
+  }
+
+  public int getHalfOpenCalls() {
+    return halfOpenCalls;
+  }
+
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Lazily creates one circuit breaker per destination (scheme://host:port) of the outgoing requests
+public class CircuitBreakerRegistry {
+
+  private final CircuitBreakerConfig config;
+  private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+  public CircuitBreakerRegistry(CircuitBreakerConfig config) {
+    this.config = config;
+  }
+
+  //Returns the circuit breaker of the destination of the given URI, or null if circuit breaking is disabled
+  public CircuitBreaker get(URI uri) {
+    if (!config.isEnabled()) {
+      return null;
+    }
+    return breakers.computeIfAbsent(getDestination(uri), destination -> new CircuitBreaker(destination, config));
+  }
+
+  public Map<String, CircuitBreaker.State> getStates() {
+    Map<String, CircuitBreaker.State> states = new HashMap<>();
+    for (CircuitBreaker breaker : breakers.values()) {
+      states.put(breaker.getDestination(), breaker.getState());
+    }
+    return states;
+  }
+
+  public static String getDestination(URI uri) {
+    int port = uri.getPort();
+    if (port == -1) {
+      port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+    return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+  }
+
+}
@@ -0,0 +1,219 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Client;
+
+/*
+  Bounded cache of Jersey clients for SSLContexts given directly to Utility.sendRequest, plus the default client of the SSLContext set with
+  Utility.setSSLContext. Contexts are compared by identity (SSLContext does not override equals), so callers have to reuse the same SSLContext
+  instance to benefit from the warm connections and resumable TLS sessions. When the cache is full (or the default client is replaced), the
+  connection pool of the least recently used (or the previous) client is shut down, once the requests using it are finished.
+ */
+public class ClientRegistry {
+
+  private final int maxSize;
+  private final BiFunction<SSLContext, String, Client> clientFactory;
+  private final AtomicLong poolCounter = new AtomicLong();
+  private final LinkedHashMap<ContextKey, RegisteredClient> clients;
+  //Guarded by the lock of clients, null until the first setDefault call
+  private RegisteredClient defaultClient;
+
+  /**
+   * @param maxSize maximum number of clients kept open at the same time
+   * @param clientFactory creates a new client for the given SSLContext, the second argument is the connection pool name to use
+   */
+  public ClientRegistry(int maxSize, BiFunction<SSLContext, String, Client> clientFactory) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Client registry size must be a positive number!");
+    }
+    this.maxSize = maxSize;
+    this.clientFactory = clientFactory;
+    this.clients = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /*
+    The client for the given context, registered as in use until the lease is released. The connection pool of an evicted (or explicitly
+    closed) client is only retired after its last lease is released, and only shut down when none of its connections are leased anymore (the
+    responses returned by Utility.sendRequest keep their connection until they are read or closed).
+   */
+  public Lease acquire(SSLContext context) {
+    ContextKey key = new ContextKey(context);
+    synchronized (clients) {
+      RegisteredClient registered = clients.get(key);
+      if (registered != null) {
+        return new Lease(registered);
+      }
+    }
+
+    //Building a client (and its connection pool) is slow, so it happens outside of the lock. Of 2 clients built at once, the 2nd is discarded.
+    RegisteredClient created = new RegisteredClient(clientFactory.apply(context, "https#" + poolCounter.incrementAndGet()));
+    RegisteredClient evicted = null;
+    Lease lease;
+    synchronized (clients) {
+      RegisteredClient registered = clients.get(key);
+      if (registered == null) {
+        registered = created;
+        clients.put(key, registered);
+        if (clients.size() > maxSize) {
+          Map.Entry<ContextKey, RegisteredClient> eldest = clients.entrySet().iterator().next();
+          evicted = eldest.getValue();
+          clients.remove(eldest.getKey());
+          evicted.retired = true;
+        }
+      } else {
+        created.retired = true;
+      }
+      lease = new Lease(registered);
+    }
+
+    //Closing happens outside of the lock, since it can wait for the connection pool shutdown
+    if (created.retired) {
+      created.closeIfUnused();
+    }
+    if (evicted != null) {
+      evicted.closeIfUnused();
+    }
+    return lease;
+  }
+
+  //Replaces the default client with a new one for the given context, the previous one is closed the same way as an evicted client
+  public void setDefault(SSLContext context, String poolName) {
+    RegisteredClient created = new RegisteredClient(clientFactory.apply(context, poolName));
+    RegisteredClient previous;
+    synchronized (clients) {
+      previous = defaultClient;
+      defaultClient = created;
+      if (previous != null) {
+        previous.retired = true;
+      }
+    }
+    if (previous != null) {
+      previous.closeIfUnused();
+    }
+  }
+
+  //The lease of the default client, or null if setDefault was not called yet
+  public Lease acquireDefault() {
+    synchronized (clients) {
+      return defaultClient != null ? new Lease(defaultClient) : null;
+    }
+  }
+
+  //Shuts down the connection pool of the client belonging to the given context, if there is one, once it is not in use anymore
+  public void close(SSLContext context) {
+    RegisteredClient registered;
+    synchronized (clients) {
+      registered = clients.remove(new ContextKey(context));
+      if (registered != null) {
+        registered.retired = true;
+      }
+    }
+    if (registered != null) {
+      registered.closeIfUnused();
+    }
+  }
+
+  public void closeAll() {
+    List<RegisteredClient> closed;
+    synchronized (clients) {
+      closed = new ArrayList<>(clients.values());
+      clients.clear();
+      for (RegisteredClient registered : closed) {
+        registered.retired = true;
+      }
+    }
+    for (RegisteredClient registered : closed) {
+      registered.closeIfUnused();
+    }
+  }
+
+  public int size() {
+    synchronized (clients) {
+      return clients.size();
+    }
+  }
+
+  private static class ContextKey {
+
+    private final SSLContext context;
+
+    ContextKey(SSLContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ContextKey && ((ContextKey) o).context == context;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(context);
+    }
+  }
+
+  //A client in use by a request, release() has to be called exactly once, when the request is finished
+  public static final class Lease {
+
+    private final RegisteredClient registered;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    //Only created under the lock of the registry, so a retired client never gets new users
+    private Lease(RegisteredClient registered) {
+      this.registered = registered;
+      registered.users.incrementAndGet();
+    }
+
+    public Client getClient() {
+      return registered.client;
+    }
+
+    public void release() {
+      if (released.compareAndSet(false, true) && registered.users.decrementAndGet() == 0) {
+        registered.closeIfUnused();
+      }
+    }
+  }
+
+  private static class RegisteredClient {
+
+    private final Client client;
+    private final AtomicInteger users = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    //Set (under the lock of the registry) when the client is removed from the registry
+    private volatile boolean retired;
+
+    RegisteredClient(Client client) {
+      this.client = client;
+    }
+
+    /*
+      The Jersey client itself is not closed: the responses returned by Utility.sendRequest need its runtime to read their entities, even after
+      the request is finished. It is released by the garbage collector, once no response refers to it anymore. Without the pooled connector
+      there is nothing else to close, the idle connections are left to the keep-alive cache of the JDK.
+     */
+    void closeIfUnused() {
+      if (retired && users.get() == 0 && closed.compareAndSet(false, true)) {
+        ConnectionPools.retire(client);
+      }
+    }
+  }
+
+}
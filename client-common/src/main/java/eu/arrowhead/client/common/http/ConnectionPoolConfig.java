@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+
+/*
+  Settings of the pooled (Apache HttpClient based) connector used by Utility.sendRequest. The values are read from the default.conf/app.conf
+  files, every time value is in milliseconds. When the pool is disabled, Jersey falls back to the default HttpUrlConnector.
+ */
+public final class ConnectionPoolConfig {
+
+  private final boolean enabled;
+  private final int maxTotal;
+  private final int maxPerRoute;
+  private final int idleTimeout;
+  private final int keepAliveTtl;
+
+  public ConnectionPoolConfig(boolean enabled, int maxTotal, int maxPerRoute, int idleTimeout, int keepAliveTtl) {
+    if (maxTotal < 1 || maxPerRoute < 1) {
+      throw new IllegalArgumentException("Connection pool sizes must be positive numbers!");
+    }
+    this.enabled = enabled;
+    this.maxTotal = maxTotal;
+    this.maxPerRoute = Math.min(maxPerRoute, maxTotal);
+    this.idleTimeout = idleTimeout;
+    this.keepAliveTtl = keepAliveTtl;
+  }
+
+  public static ConnectionPoolConfig fromProperties(TypeSafeProperties props) {
+    return new ConnectionPoolConfig(props.getBooleanProperty("http_pool_enabled", false), props.getIntProperty("http_pool_max_total", 200),
+                                    props.getIntProperty("http_pool_max_per_route", 20), props.getIntProperty("http_pool_idle_timeout", 30000),
+                                    props.getIntProperty("http_pool_keep_alive_ttl", 300000));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getMaxTotal() {
+    return maxTotal;
+  }
+
+  public int getMaxPerRoute() {
+    return maxPerRoute;
+  }
+
+  //Connections which were not leased for this long are closed by the eviction task (0 or less disables idle eviction)
+  public int getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  //Maximum lifetime of a pooled connection, regardless of its activity (0 or less means infinite)
+  public int getKeepAliveTtl() {
+    return keepAliveTtl;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionPoolConfig{enabled=" + enabled + ", maxTotal=" + maxTotal + ", maxPerRoute=" + maxPerRoute + ", idleTimeout=" + idleTimeout
+        + ", keepAliveTtl=" + keepAliveTtl + "}";
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Point-in-time snapshot of a connection pool, the per route map is keyed by the target host (scheme://host:port)
+public class ConnectionPoolStats {
+
+  private String name;
+  private int leased;
+  private int pending;
+  private int available;
+  private int max;
+  private Map<String, Integer> leasedPerRoute = new HashMap<>();
+
+  public ConnectionPoolStats() {
+  }
+
+  public ConnectionPoolStats(String name, int leased, int pending, int available, int max, Map<String, Integer> leasedPerRoute) {
+    this.name = name;
+    this.leased = leased;
+    this.pending = pending;
+    this.available = available;
+    this.max = max;
+    this.leasedPerRoute = leasedPerRoute;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  //Number of connections currently used by a request
+  public int getLeased() {
+    return leased;
+  }
+
+  public void setLeased(int leased) {
+    this.leased = leased;
+  }
+
+  //Number of requests waiting for a free connection
+  public int getPending() {
+    return pending;
+  }
+
+  public void setPending(int pending) {
+    this.pending = pending;
+  }
+
+  //Number of idle (warm) connections ready to be reused
+  public int getAvailable() {
+    return available;
+  }
+
+  public void setAvailable(int available) {
+    this.available = available;
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  public void setMax(int max) {
+    this.max = max;
+  }
+
+  public Map<String, Integer> getLeasedPerRoute() {
+    return leasedPerRoute;
+  }
+
+  public void setLeasedPerRoute(Map<String, Integer> leasedPerRoute) {
+    this.leasedPerRoute = leasedPerRoute;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionPoolStats{name='" + name + "', leased=" + leased + ", pending=" + pending + ", available=" + available + ", max=" + max + "}";
+  }
+
+}
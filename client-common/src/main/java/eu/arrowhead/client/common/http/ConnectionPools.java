@@ -0,0 +1,259 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.http.LatencyBreakdown.RequestTiming;
+import eu.arrowhead.client.common.misc.NamedThreadFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Client;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+/*
+  Keeps track of the connection pools backing the Jersey clients created by Utility. Every pool belongs to exactly one SSLContext, and a single
+  daemon thread closes the idle and expired connections of all the pools periodically. The DNS lookups, TCP connects and TLS handshakes of the
+  new connections are timed for the LatencyBreakdown of the request being executed.
+ */
+public final class ConnectionPools {
+
+  private static final Map<String, PoolingHttpClientConnectionManager> pools = new ConcurrentHashMap<>();
+  //Pools removed while their connections were still in use
+  private static final Set<PoolingHttpClientConnectionManager> retired = ConcurrentHashMap.newKeySet();
+  private static volatile ScheduledExecutorService evictor;
+
+  private ConnectionPools() throws AssertionError {
+    throw new AssertionError("Arrowhead Common:ConnectionPools is a non-instantiable class");
+  }
+
+  /*
+    Switches the given client configuration to the Apache connector, backed by a new connection pool registered under the given name. A previous
+    pool with the same name is only unregistered, since its client may still be in use, it is shut down when that client is retired.
+   */
+  public static void configure(ClientConfig configuration, String name, SSLContext context, HostnameVerifier verifier, ConnectionPoolConfig config) {
+    PoolingHttpClientConnectionManager connectionManager = createConnectionManager(context, verifier, config);
+
+    //Waiting for a free connection from an exhausted pool should fail the same way as a connect timeout, instead of blocking forever
+    Object connectTimeout = configuration.getProperty(ClientProperties.CONNECT_TIMEOUT);
+    int leaseTimeout = connectTimeout instanceof Integer ? (Integer) connectTimeout : 30000;
+    RequestConfig requestConfig = RequestConfig.custom().setConnectionRequestTimeout(leaseTimeout).build();
+
+    configuration.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+    configuration.property(ApacheClientProperties.REQUEST_CONFIG, requestConfig);
+    //Utility retries on its own (with backoff, budget and deadline), the silent retries of HttpClient would multiply its attempts
+    configuration.property(ApacheClientProperties.RETRY_HANDLER, new DefaultHttpRequestRetryHandler(0, false));
+    configuration.connectorProvider(new ApacheConnectorProvider());
+
+    pools.put(name, connectionManager);
+    startEvictor(config);
+  }
+
+  //Shuts down the pool with the given name, the Jersey client using it must not be used afterwards
+  public static void remove(String name) {
+    PoolingHttpClientConnectionManager connectionManager = pools.remove(name);
+    if (connectionManager != null) {
+      connectionManager.shutdown();
+    }
+  }
+
+  /*
+    Removes the pool of the given client (if it has one), but only shuts it down when none of its connections are leased anymore (a response
+    still being read keeps its connection). The evictor thread checks the retired pools periodically.
+   */
+  public static void retire(Client client) {
+    Object connectionManager = client.getConfiguration().getProperty(ApacheClientProperties.CONNECTION_MANAGER);
+    if (connectionManager instanceof PoolingHttpClientConnectionManager) {
+      //Found by identity, a newer pool may be registered under the same name already
+      pools.values().remove(connectionManager);
+      retired.add((PoolingHttpClientConnectionManager) connectionManager);
+      closeDrained();
+    }
+  }
+
+  public static ConnectionPoolStats getStats(String name) {
+    PoolingHttpClientConnectionManager connectionManager = pools.get(name);
+    return connectionManager == null ? null : toStats(name, connectionManager);
+  }
+
+  public static Map<String, ConnectionPoolStats> getStats() {
+    Map<String, ConnectionPoolStats> stats = new HashMap<>();
+    for (Entry<String, PoolingHttpClientConnectionManager> entry : pools.entrySet()) {
+      stats.put(entry.getKey(), toStats(entry.getKey(), entry.getValue()));
+    }
+    return stats;
+  }
+
+  private static PoolingHttpClientConnectionManager createConnectionManager(SSLContext context, HostnameVerifier verifier,
+                                                                            ConnectionPoolConfig config) {
+    //Same as SSLConnectionSocketFactory.getSocketFactory() without a given context
+    SSLConnectionSocketFactory sslSocketFactory =
+        context != null ? new TimedSSLSocketFactory(context, verifier)
+                        : new TimedSSLSocketFactory(SSLContexts.createDefault(), SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+    Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                                                                .register("http", new TimedPlainSocketFactory())
+                                                                .register("https", sslSocketFactory).build();
+
+    PoolingHttpClientConnectionManager connectionManager = new StatelessConnectionManager(registry, config.getKeepAliveTtl());
+    connectionManager.setMaxTotal(config.getMaxTotal());
+    connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+    //Stale connection check before reusing a connection, which was idle for more than 2 seconds
+    connectionManager.setValidateAfterInactivity(2000);
+    return connectionManager;
+  }
+
+  private static synchronized void startEvictor(ConnectionPoolConfig config) {
+    if (evictor != null) {
+      return;
+    }
+    long period = config.getIdleTimeout() > 0 ? Math.max(1000, config.getIdleTimeout() / 2) : 30000;
+    evictor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("arrowhead-connection-evictor"));
+    evictor.scheduleWithFixedDelay(() -> {
+      for (PoolingHttpClientConnectionManager connectionManager : pools.values()) {
+        connectionManager.closeExpiredConnections();
+        if (config.getIdleTimeout() > 0) {
+          connectionManager.closeIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+      }
+      closeDrained();
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  private static void closeDrained() {
+    for (PoolingHttpClientConnectionManager connectionManager : retired) {
+      PoolStats total = connectionManager.getTotalStats();
+      if (total.getLeased() == 0 && total.getPending() == 0 && retired.remove(connectionManager)) {
+        connectionManager.shutdown();
+      }
+    }
+  }
+
+  private static ConnectionPoolStats toStats(String name, PoolingHttpClientConnectionManager connectionManager) {
+    PoolStats total = connectionManager.getTotalStats();
+    Map<String, Integer> leasedPerRoute = new HashMap<>();
+    for (HttpRoute route : connectionManager.getRoutes()) {
+      leasedPerRoute.put(route.getTargetHost().toURI(), connectionManager.getStats(route).getLeased());
+    }
+    return new ConnectionPoolStats(name, total.getLeased(), total.getPending(), total.getAvailable(), total.getMax(), leasedPerRoute);
+  }
+
+  /*
+    HttpClient marks TLS connections authenticated with a client certificate with the local principal, and only hands them out again to requests
+    carrying the same user token. Jersey never sets a user token, so mutual TLS connections would never be reused. Every pool here is bound to a
+    single SSLContext (so a single client identity), which makes it safe to drop the connection state altogether.
+   */
+  private static class StatelessConnectionManager extends PoolingHttpClientConnectionManager {
+
+    StatelessConnectionManager(Registry<ConnectionSocketFactory> registry, long timeToLive) {
+      super(registry, null, null, new TimedDnsResolver(), timeToLive > 0 ? timeToLive : -1, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      return super.requestConnection(route, null);
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit tunit) {
+      super.releaseConnection(managedConn, null, keepalive, tunit);
+    }
+  }
+
+  private static class TimedDnsResolver extends SystemDefaultDnsResolver {
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+      long start = System.nanoTime();
+      try {
+        return super.resolve(host);
+      } finally {
+        LatencyBreakdown.addToCurrent(RequestPhase.RESOLVE, System.nanoTime() - start);
+      }
+    }
+  }
+
+  private static class TimedPlainSocketFactory extends PlainConnectionSocketFactory {
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                HttpContext context) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+      } finally {
+        LatencyBreakdown.addToCurrent(RequestPhase.CONNECT, System.nanoTime() - start);
+      }
+    }
+  }
+
+  //The TLS handshake happens in createLayeredSocket, called by connectSocket after the TCP connection is established
+  private static class TimedSSLSocketFactory extends SSLConnectionSocketFactory {
+
+    TimedSSLSocketFactory(SSLContext context, HostnameVerifier verifier) {
+      super(context, verifier);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                HttpContext context) throws IOException {
+      RequestTiming timing = LatencyBreakdown.current();
+      long handshakeBefore = timing != null ? timing.get(RequestPhase.HANDSHAKE) : 0;
+      long start = System.nanoTime();
+      try {
+        return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+      } finally {
+        if (timing != null) {
+          timing.add(RequestPhase.CONNECT, System.nanoTime() - start - (timing.get(RequestPhase.HANDSHAKE) - handshakeBefore));
+        }
+      }
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.createLayeredSocket(socket, target, port, context);
+      } finally {
+        LatencyBreakdown.addToCurrent(RequestPhase.HANDSHAKE, System.nanoTime() - start);
+      }
+    }
+  }
+
+}
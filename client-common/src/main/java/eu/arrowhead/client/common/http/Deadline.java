@@ -0,0 +1,80 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.exception.DeadlineExceededException;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response.Status;
+
+/*
+  Point in time by which a request (with all of its retries) has to be finished. It is measured with System.nanoTime, so it is only meaningful
+  inside this JVM: between systems it travels as the remaining milliseconds in the HEADER request header, which the DeadlineFilter turns back into
+  a Deadline for the thread serving the inbound request. Requests sent by Utility on that thread inherit it automatically.
+ */
+public final class Deadline {
+
+  public static final String HEADER = "X-Arrowhead-Timeout";
+
+  private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+  private final long expiresAt;
+
+  private Deadline(long expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+
+  public static Deadline after(long millis) {
+    return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  //Milliseconds left until the deadline (0 or negative if it already expired)
+  public long getRemaining() {
+    return TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime());
+  }
+
+  public boolean isExpired() {
+    return getRemaining() <= 0;
+  }
+
+  //The exception of a call which did not finish before its deadline
+  public static DeadlineExceededException exceeded(String uri, Throwable cause) {
+    return new DeadlineExceededException("Deadline exceeded, no response from " + uri + " in time", Status.GATEWAY_TIMEOUT.getStatusCode(), cause);
+  }
+
+  //The sooner of the two deadlines, either of them can be null
+  public static Deadline earliest(Deadline first, Deadline second) {
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    return first.expiresAt - second.expiresAt <= 0 ? first : second;
+  }
+
+  //Deadline of the inbound request served by the current thread, or null if the caller did not send one
+  public static Deadline current() {
+    return current.get();
+  }
+
+  public static void setCurrent(Deadline deadline) {
+    if (deadline == null) {
+      current.remove();
+    } else {
+      current.set(deadline);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Deadline{remaining=" + getRemaining() + " ms}";
+  }
+
+}
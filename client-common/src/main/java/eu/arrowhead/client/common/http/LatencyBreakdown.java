@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Per destination (scheme://host:port) latency histograms of the request phases, recorded by LatencyBreakdownFilter. A phase is only recorded
+  for the requests it actually happened in (e.g. CONNECT only for new connections), so the sample counts of the phases can differ.
+ */
+public final class LatencyBreakdown {
+
+  private static final Map<String, LatencyHistogram[]> histograms = new ConcurrentHashMap<>();
+  //Timing of the request executed by the current thread, the connection pool hooks (DNS resolver, socket factories) add their phases to it
+  private static final ThreadLocal<RequestTiming> current = new ThreadLocal<>();
+
+  private LatencyBreakdown() throws AssertionError {
+    throw new AssertionError("Arrowhead Common:LatencyBreakdown is a non-instantiable class");
+  }
+
+  public static void record(String destination, RequestPhase phase, long nanos) {
+    histograms.computeIfAbsent(destination, key -> createHistograms())[phase.ordinal()].record(nanos);
+  }
+
+  public static Map<String, Map<RequestPhase, LatencyStats>> getStats() {
+    Map<String, Map<RequestPhase, LatencyStats>> stats = new HashMap<>();
+    for (Entry<String, LatencyHistogram[]> entry : histograms.entrySet()) {
+      stats.put(entry.getKey(), toStats(entry.getValue()));
+    }
+    return stats;
+  }
+
+  //Statistics of the given destination (scheme://host:port), or null if no request was measured to it yet
+  public static Map<RequestPhase, LatencyStats> getStats(String destination) {
+    LatencyHistogram[] destinationHistograms = histograms.get(destination);
+    return destinationHistograms == null ? null : toStats(destinationHistograms);
+  }
+
+  public static void reset() {
+    histograms.clear();
+  }
+
+  static RequestTiming current() {
+    return current.get();
+  }
+
+  static void setCurrent(RequestTiming timing) {
+    if (timing == null) {
+      current.remove();
+    } else {
+      current.set(timing);
+    }
+  }
+
+  //Adds the duration of a phase to the request executed by the current thread (if it is measured)
+  static void addToCurrent(RequestPhase phase, long nanos) {
+    RequestTiming timing = current.get();
+    if (timing != null) {
+      timing.add(phase, nanos);
+    }
+  }
+
+  private static LatencyHistogram[] createHistograms() {
+    LatencyHistogram[] destinationHistograms = new LatencyHistogram[RequestPhase.values().length];
+    for (int i = 0; i < destinationHistograms.length; i++) {
+      destinationHistograms[i] = new LatencyHistogram();
+    }
+    return destinationHistograms;
+  }
+
+  private static Map<RequestPhase, LatencyStats> toStats(LatencyHistogram[] destinationHistograms) {
+    Map<RequestPhase, LatencyStats> stats = new EnumMap<>(RequestPhase.class);
+    for (RequestPhase phase : RequestPhase.values()) {
+      stats.put(phase, destinationHistograms[phase.ordinal()].getStats());
+    }
+    return stats;
+  }
+
+  /*
+    Phase durations of a single request attempt. The connection phases are added by the thread executing the request, the READ phase by the
+    thread reading the response body, which may be another thread (e.g. for asynchronous requests).
+   */
+  static final class RequestTiming {
+
+    private final String destination;
+    private final long[] phases = new long[RequestPhase.values().length];
+    private final boolean[] measured = new boolean[phases.length];
+    private volatile long sentAt;
+
+    RequestTiming(String destination) {
+      this.destination = destination;
+    }
+
+    synchronized void add(RequestPhase phase, long nanos) {
+      phases[phase.ordinal()] += nanos;
+      measured[phase.ordinal()] = true;
+    }
+
+    synchronized long get(RequestPhase phase) {
+      return phases[phase.ordinal()];
+    }
+
+    //Records the measured phases among the given ones into the histograms of the destination
+    synchronized void record(RequestPhase... recordedPhases) {
+      for (RequestPhase phase : recordedPhases) {
+        if (measured[phase.ordinal()]) {
+          LatencyBreakdown.record(destination, phase, phases[phase.ordinal()]);
+        }
+      }
+    }
+
+    long getSentAt() {
+      return sentAt;
+    }
+
+    void setSentAt(long sentAt) {
+      this.sentAt = sentAt;
+    }
+  }
+
+}
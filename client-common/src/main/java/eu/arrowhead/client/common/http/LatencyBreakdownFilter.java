@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.http.LatencyBreakdown.RequestTiming;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.Priority;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/*
+  Measures the phases (RequestPhase) of the requests sent by the Jersey clients of Utility, and records them into the LatencyBreakdown
+  histograms of their destination. Its request filter runs after, and its response filter before every other filter, so the responses served by
+  the ResponseCacheFilter are not measured, while the response body read by the cache filter counts as READ.
+    RESOLVE, CONNECT, HANDSHAKE: added by the connection pool hooks (see ConnectionPools), on the thread executing the request
+    WRITE: the writer interceptor chain (payload serialization and sending)
+    WAIT: from the end of the request filters until the response filters, minus the phases above
+    READ, DESERIALIZE: the reader interceptor chain, split by the time spent waiting for the body bytes
+ */
+@Priority(Integer.MAX_VALUE)
+public class LatencyBreakdownFilter implements ClientRequestFilter, ClientResponseFilter, ReaderInterceptor, WriterInterceptor {
+
+  private static final String TIMING = "eu.arrowhead.latency.timing";
+
+  @Override
+  public void filter(ClientRequestContext request) {
+    RequestTiming timing = new RequestTiming(CircuitBreakerRegistry.getDestination(request.getUri()));
+    request.setProperty(TIMING, timing);
+    LatencyBreakdown.setCurrent(timing);
+    timing.setSentAt(System.nanoTime());
+  }
+
+  @Override
+  public void filter(ClientRequestContext request, ClientResponseContext response) {
+    long receivedAt = System.nanoTime();
+    RequestTiming timing = (RequestTiming) request.getProperty(TIMING);
+    if (timing == null) {
+      //Aborted by an earlier request filter (e.g. served from the response cache)
+      return;
+    }
+    LatencyBreakdown.setCurrent(null);
+    long wait = receivedAt - timing.getSentAt();
+    for (RequestPhase phase : new RequestPhase[]{RequestPhase.RESOLVE, RequestPhase.CONNECT, RequestPhase.HANDSHAKE, RequestPhase.WRITE}) {
+      wait -= timing.get(phase);
+    }
+    timing.add(RequestPhase.WAIT, Math.max(0, wait));
+    timing.record(RequestPhase.RESOLVE, RequestPhase.CONNECT, RequestPhase.HANDSHAKE, RequestPhase.WRITE, RequestPhase.WAIT);
+
+    if (response.hasEntity()) {
+      response.setEntityStream(new TimedInputStream(response.getEntityStream(), timing));
+    }
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    RequestTiming timing = (RequestTiming) context.getProperty(TIMING);
+    long start = System.nanoTime();
+    try {
+      context.proceed();
+    } finally {
+      if (timing != null) {
+        timing.add(RequestPhase.WRITE, System.nanoTime() - start);
+      }
+    }
+  }
+
+  @Override
+  public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+    RequestTiming timing = (RequestTiming) context.getProperty(TIMING);
+    if (timing == null) {
+      return context.proceed();
+    }
+    long readBefore = timing.get(RequestPhase.READ);
+    long start = System.nanoTime();
+    Object entity = context.proceed();
+    long readDuring = timing.get(RequestPhase.READ) - readBefore;
+    timing.add(RequestPhase.DESERIALIZE, Math.max(0, System.nanoTime() - start - readDuring));
+    timing.record(RequestPhase.READ, RequestPhase.DESERIALIZE);
+    return entity;
+  }
+
+  //Adds the time spent in the read calls to the READ phase of the request
+  private static final class TimedInputStream extends FilterInputStream {
+
+    private final RequestTiming timing;
+
+    private TimedInputStream(InputStream in, RequestTiming timing) {
+      super(in);
+      this.timing = timing;
+    }
+
+    @Override
+    public int read() throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.read();
+      } finally {
+        timing.add(RequestPhase.READ, System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.read(b, off, len);
+      } finally {
+        timing.add(RequestPhase.READ, System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return super.skip(n);
+      } finally {
+        timing.add(RequestPhase.READ, System.nanoTime() - start);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.exception.DataNotFoundException;
+import java.util.Map;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/*
+  REST interface for the latency statistics of the outgoing requests (LatencyBreakdown), registered by the web servers of the clients.
+  GET latency: every destination, GET latency?destination=http://host:port: a single destination
+ */
+@Path(LatencyResource.PATH)
+@Produces(MediaType.APPLICATION_JSON)
+public class LatencyResource {
+
+  public static final String PATH = "latency";
+
+  @GET
+  public Response getLatencyBreakdown(@QueryParam("destination") String destination) {
+    if (destination == null) {
+      return Response.ok(LatencyBreakdown.getStats()).build();
+    }
+    Map<RequestPhase, LatencyStats> stats = LatencyBreakdown.getStats(destination);
+    if (stats == null) {
+      throw new DataNotFoundException("No request was measured to " + destination + " yet.", 404);
+    }
+    return Response.ok(stats).build();
+  }
+
+}
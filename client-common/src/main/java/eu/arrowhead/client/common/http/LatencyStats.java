@@ -0,0 +1,87 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+//Point-in-time snapshot of a LatencyHistogram, the latencies are in milliseconds (percentiles are accurate within 12.5%)
+public class LatencyStats {
+
+  private long count;
+  private double mean;
+  private double p50;
+  private double p90;
+  private double p99;
+  private double max;
+
+  public LatencyStats() {
+  }
+
+  public LatencyStats(long count, double mean, double p50, double p90, double p99, double max) {
+    this.count = count;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.max = max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public void setMean(double mean) {
+    this.mean = mean;
+  }
+
+  public double getP50() {
+    return p50;
+  }
+
+  public void setP50(double p50) {
+    this.p50 = p50;
+  }
+
+  public double getP90() {
+    return p90;
+  }
+
+  public void setP90(double p90) {
+    this.p90 = p90;
+  }
+
+  public double getP99() {
+    return p99;
+  }
+
+  public void setP99(double p99) {
+    this.p99 = p99;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  public void setMax(double max) {
+    this.max = max;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count + ", mean=" + mean + ", p50=" + p50 + ", p90=" + p90 + ", p99=" + p99 + ", max=" + max;
+  }
+
+}
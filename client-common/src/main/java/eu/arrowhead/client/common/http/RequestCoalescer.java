@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.net.ssl.SSLContext;
+
+/*
+  Singleflight for identical requests: while a request is in flight, every identical request (same Key) waits for its outcome instead of sending
+  its own. All the waiters get the very same decoded entity instance (so it must be treated as read-only), or the same exception.
+ */
+public class RequestCoalescer {
+
+  private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+  //Runs the call, unless an identical one is already in flight, in which case its outcome is awaited (at most until the deadline)
+  @SuppressWarnings("unchecked")
+  public <R> R execute(Key key, Deadline deadline, Supplier<R> call) {
+    CompletableFuture<Object> leader = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, leader);
+    if (existing != null) {
+      return (R) await(existing, key, deadline);
+    }
+
+    try {
+      R result = call.get();
+      leader.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      leader.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, leader);
+    }
+  }
+
+  //Asynchronous version of execute, the returned stage completes with the outcome of the in-flight call
+  @SuppressWarnings("unchecked")
+  public <R> CompletionStage<R> executeAsync(Key key, Supplier<CompletionStage<R>> call) {
+    CompletableFuture<Object> leader = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, leader);
+    if (existing != null) {
+      return existing.thenApply(result -> (R) result);
+    }
+
+    try {
+      call.get().whenComplete((result, error) -> {
+        inFlight.remove(key, leader);
+        if (error != null) {
+          leader.completeExceptionally(Utility.unwrapCompletionException(error));
+        } else {
+          leader.complete(result);
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlight.remove(key, leader);
+      leader.completeExceptionally(e);
+    }
+    //Callers get a dependent stage, so cancelling it can not cancel the shared one
+    return leader.thenApply(result -> (R) result);
+  }
+
+  //Number of distinct requests in flight right now
+  public int getInFlight() {
+    return inFlight.size();
+  }
+
+  private static Object await(CompletableFuture<Object> future, Key key, Deadline deadline) {
+    try {
+      return deadline == null ? future.get() : future.get(Math.max(0, deadline.getRemaining()), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ArrowheadException("Request to " + key.uri + " failed", cause);
+    } catch (TimeoutException e) {
+      throw Deadline.exceeded(key.uri, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ArrowheadException("Interrupted while waiting for the response from " + key.uri, e);
+    }
+  }
+
+  /*
+    Identity of a request: method, full URI (Arrowhead authorization tokens travel in the query string, so they are part of it), the SSLContext
+    (client identity, compared by reference) and the type the entity is decoded into.
+   */
+  public static final class Key {
+
+    private final String method;
+    private final String uri;
+    private final SSLContext context;
+    private final Class<?> responseType;
+
+    public Key(String method, String uri, SSLContext context, Class<?> responseType) {
+      this.method = method;
+      this.uri = uri;
+      this.context = context;
+      this.responseType = responseType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return method.equals(key.method) && uri.equals(key.uri) && context == key.context && responseType == key.responseType;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, uri, System.identityHashCode(context), responseType);
+    }
+
+    @Override
+    public String toString() {
+      return method + " " + uri;
+    }
+  }
+
+}
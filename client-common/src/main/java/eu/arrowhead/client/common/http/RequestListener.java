@@ -0,0 +1,24 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+/*
+  Observes the individual attempts (retries included) sent by Utility.sendRequest and sendRequestAsync, e.g. to measure the latency of the
+  destinations. Listeners are called on the request threads, so they have to be fast, thread safe and must not throw exceptions.
+ */
+public interface RequestListener {
+
+  //An attempt is about to be sent to the given URL
+  void onAttemptStart(String uri);
+
+  //The attempt to the given URL finished after the given time: status is the HTTP status code, or 0 if no response arrived at all
+  void onAttemptEnd(String uri, long latencyNanos, int status);
+
+}
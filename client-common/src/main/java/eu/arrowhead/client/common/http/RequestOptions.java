@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+//Per call settings of Utility.sendRequest (and its variants), the defaults apply the settings of the config files unchanged
+public final class RequestOptions {
+
+  public static final RequestOptions DEFAULT = new Builder().build();
+
+  private final boolean retrySafe;
+  private final int maxAttempts;
+  private final long timeout;
+  private final boolean coalesce;
+
+  private RequestOptions(Builder builder) {
+    this.retrySafe = builder.retrySafe;
+    this.maxAttempts = builder.maxAttempts;
+    this.timeout = builder.timeout;
+    this.coalesce = builder.coalesce;
+  }
+
+  public boolean isRetrySafe() {
+    return retrySafe;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public boolean isCoalesce() {
+    return coalesce;
+  }
+
+  public static class Builder {
+
+    private boolean retrySafe;
+    private int maxAttempts;
+    private long timeout;
+    private boolean coalesce;
+
+    /*
+      Marks a non-idempotent request (POST) as safe to send again after a transient failure, e.g. because the receiver ignores duplicates.
+      GET, PUT and DELETE requests are always retried.
+     */
+    public Builder retrySafe(boolean retrySafe) {
+      this.retrySafe = retrySafe;
+      return this;
+    }
+
+    //Overrides http_retry_max_attempts for this call (1 disables retrying, 0 keeps the configured value)
+    public Builder maxAttempts(int maxAttempts) {
+      if (maxAttempts < 0) {
+        throw new IllegalArgumentException("Max attempts can not be negative!");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /*
+      Deadline (in milliseconds) for the whole call, retries included. The remaining time is sent to the receiver in the Deadline.HEADER
+      header. If the current thread serves a request with an earlier deadline, that one applies. 0 means no deadline of its own.
+     */
+    public Builder timeout(long timeout) {
+      if (timeout < 0) {
+        throw new IllegalArgumentException("Timeout can not be negative!");
+      }
+      this.timeout = timeout;
+      return this;
+    }
+
+    /*
+      Lets concurrent, identical GET requests (see RequestCoalescer.Key) share a single exchange. Only applies to the exchange and typed
+      sendRequestAsync methods, and every caller gets the same decoded entity instance, which must not be modified.
+     */
+    public Builder coalesce(boolean coalesce) {
+      this.coalesce = coalesce;
+      return this;
+    }
+
+    public RequestOptions build() {
+      return new RequestOptions(this);
+    }
+  }
+
+}
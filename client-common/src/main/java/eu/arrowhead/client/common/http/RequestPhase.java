@@ -0,0 +1,31 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+/*
+  Phases of a request measured by LatencyBreakdownFilter. RESOLVE, CONNECT and HANDSHAKE are only measured for new connections of the pooled
+  connector (http_pool_enabled=true), otherwise they are part of WAIT (or WRITE, if the connection is opened while writing the payload).
+ */
+public enum RequestPhase {
+  //DNS lookup of the destination host
+  RESOLVE,
+  //TCP connection establishment
+  CONNECT,
+  //TLS handshake (https destinations only)
+  HANDSHAKE,
+  //Serializing and sending the request payload (requests with a payload only)
+  WRITE,
+  //Time to first byte: from sending the request until the response headers arrive (server time plus the network round trip)
+  WAIT,
+  //Reading the response body from the network
+  READ,
+  //Turning the response body into the response object (without the time spent waiting for the body bytes)
+  DESERIALIZE
+}
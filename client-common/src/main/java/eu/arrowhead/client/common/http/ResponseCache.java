@@ -0,0 +1,191 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+/*
+  In-memory cache of GET responses (raw bytes and headers, so every reader decodes its own copy), bounded both in entry count and in total size,
+  evicting the least recently used entries first. Shared by the ResponseCacheFilters of all the Jersey clients created by Utility.
+ */
+public class ResponseCache {
+
+  private final int maxEntries;
+  private final long maxSize;
+  private final long maxEntrySize;
+  private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long size;
+  private long hits;
+  private long misses;
+  private long revalidations;
+  private long stores;
+  private long evictions;
+
+  /**
+   * @param maxEntries number of responses kept at most
+   * @param maxSize total size of the cached response bodies at most (bytes), a single body can take up at most 1/8 of it
+   */
+  public ResponseCache(int maxEntries, long maxSize) {
+    if (maxEntries < 1 || maxSize < 1) {
+      throw new IllegalArgumentException("Response cache max entries and max size must be positive numbers!");
+    }
+    this.maxEntries = maxEntries;
+    this.maxSize = maxSize;
+    this.maxEntrySize = Math.max(1, maxSize / 8);
+  }
+
+  //Returns null if the cache is disabled in the config files
+  public static ResponseCache fromProperties(TypeSafeProperties props) {
+    if (!props.getBooleanProperty("http_cache_enabled", false)) {
+      return null;
+    }
+    return new ResponseCache(props.getIntProperty("http_cache_max_entries", 256), props.getIntProperty("http_cache_max_size", 4194304));
+  }
+
+  public synchronized CachedResponse get(String key) {
+    return entries.get(key);
+  }
+
+  public synchronized void put(String key, CachedResponse response) {
+    CachedResponse previous = entries.put(key, response);
+    if (previous != null) {
+      size -= previous.body.length;
+    }
+    size += response.body.length;
+    stores++;
+
+    Iterator<Entry<String, CachedResponse>> iterator = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || size > maxSize) && iterator.hasNext()) {
+      size -= iterator.next().getValue().body.length;
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized void remove(String key) {
+    CachedResponse removed = entries.remove(key);
+    if (removed != null) {
+      size -= removed.body.length;
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  public long getMaxEntrySize() {
+    return maxEntrySize;
+  }
+
+  synchronized void recordHit() {
+    hits++;
+  }
+
+  synchronized void recordMiss() {
+    misses++;
+  }
+
+  //A stale entry was confirmed by a 304 response, which counts as a hit as well
+  synchronized void recordRevalidation() {
+    hits++;
+    revalidations++;
+  }
+
+  public synchronized ResponseCacheStats getStats() {
+    return new ResponseCacheStats(entries.size(), size, hits, misses, revalidations, stores, evictions);
+  }
+
+  //A cached response body with its headers, and the request header values its Vary header refers to
+  public static final class CachedResponse {
+
+    private final byte[] body;
+    private final MultivaluedMap<String, Object> headers;
+    private final String eTag;
+    private final Map<String, String> varyValues;
+    private final long expiresAt;
+
+    CachedResponse(byte[] body, MultivaluedMap<String, Object> headers, String eTag, Map<String, String> varyValues, long maxAge) {
+      this.body = body;
+      this.headers = headers;
+      this.eTag = eTag;
+      this.varyValues = varyValues;
+      this.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxAge);
+    }
+
+    //Same response, valid for maxAge milliseconds from now (after a successful revalidation)
+    CachedResponse refresh(long maxAge) {
+      return new CachedResponse(body, headers, eTag, varyValues, maxAge);
+    }
+
+    boolean isFresh() {
+      return expiresAt - System.nanoTime() > 0;
+    }
+
+    //The response is only usable for requests with the same values in the headers listed in its Vary header
+    boolean matches(ClientRequestContext request) {
+      for (Entry<String, String> entry : varyValues.entrySet()) {
+        String value = request.getHeaderString(entry.getKey());
+        if (value == null ? entry.getValue() != null : !value.equals(entry.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    String getETag() {
+      return eTag;
+    }
+
+    byte[] getBody() {
+      return body;
+    }
+
+    MultivaluedMap<String, Object> getHeaders() {
+      return headers;
+    }
+
+    Response toResponse() {
+      ResponseBuilder builder = Response.ok();
+      for (Entry<String, List<Object>> header : headers.entrySet()) {
+        for (Object value : header.getValue()) {
+          builder.header(header.getKey(), value);
+        }
+      }
+      return builder.entity(new ByteArrayInputStream(body)).build();
+    }
+
+    static MultivaluedMap<String, Object> copyHeaders(MultivaluedMap<String, String> headers) {
+      MultivaluedMap<String, Object> copy = new MultivaluedHashMap<>();
+      for (Entry<String, List<String>> header : headers.entrySet()) {
+        //Hop-by-hop headers describe the original connection, not the response
+        if (!"Connection".equalsIgnoreCase(header.getKey()) && !"Keep-Alive".equalsIgnoreCase(header.getKey())
+            && !"Transfer-Encoding".equalsIgnoreCase(header.getKey())) {
+          copy.addAll(header.getKey(), header.getValue().toArray());
+        }
+      }
+      return copy;
+    }
+  }
+
+}
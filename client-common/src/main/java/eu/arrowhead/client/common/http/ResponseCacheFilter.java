@@ -0,0 +1,208 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.http.ResponseCache.CachedResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response.Status;
+
+/*
+  Serves GET requests from the ResponseCache, following the HTTP caching rules a private cache has to:
+    - responses are stored if they have a positive Cache-Control max-age or an ETag (and no no-store directive or "Vary: *" header)
+    - fresh entries are returned without a network round trip
+    - stale entries with an ETag are revalidated with If-None-Match, a 304 answer is turned back into the cached 200 response
+    - entries only match requests with the same values in the headers listed by their Vary header
+    - POST, PUT and DELETE requests invalidate the entry of their URI
+  Every Jersey client gets its own filter instance, so responses received with different client identities (SSLContexts) never mix.
+ */
+public class ResponseCacheFilter implements ClientRequestFilter, ClientResponseFilter {
+
+  private static final String HIT = "eu.arrowhead.cache.hit";
+  private static final String BYPASS = "eu.arrowhead.cache.bypass";
+  private static final String REVALIDATING = "eu.arrowhead.cache.revalidating";
+
+  private final ResponseCache cache;
+  private final String clientName;
+
+  public ResponseCacheFilter(ResponseCache cache, String clientName) {
+    this.cache = cache;
+    this.clientName = clientName;
+  }
+
+  @Override
+  public void filter(ClientRequestContext request) {
+    String key = getKey(request);
+    if (!HttpMethod.GET.equals(request.getMethod())) {
+      if (!HttpMethod.HEAD.equals(request.getMethod()) && !HttpMethod.OPTIONS.equals(request.getMethod())) {
+        cache.remove(key);
+      }
+      return;
+    }
+
+    Directives requestDirectives = new Directives(request.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    if (requestDirectives.noStore) {
+      request.setProperty(BYPASS, true);
+      return;
+    }
+    CachedResponse cached = cache.get(key);
+    if (cached == null || !cached.matches(request)) {
+      cache.recordMiss();
+      return;
+    }
+    if (cached.isFresh() && !requestDirectives.noCache) {
+      cache.recordHit();
+      request.setProperty(HIT, true);
+      request.abortWith(cached.toResponse());
+      return;
+    }
+    if (cached.getETag() != null) {
+      request.setProperty(REVALIDATING, cached);
+      request.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+    } else {
+      cache.recordMiss();
+    }
+  }
+
+  @Override
+  public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+    if (!HttpMethod.GET.equals(request.getMethod()) || request.getProperty(HIT) != null || request.getProperty(BYPASS) != null) {
+      return;
+    }
+    String key = getKey(request);
+    Directives directives = new Directives(response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+
+    CachedResponse revalidated = (CachedResponse) request.getProperty(REVALIDATING);
+    if (revalidated != null) {
+      if (response.getStatus() == Status.NOT_MODIFIED.getStatusCode()) {
+        cache.recordRevalidation();
+        cache.put(key, revalidated.refresh(Math.max(0, directives.maxAge)));
+        //The caller gets the cached response, as if the request was sent without If-None-Match
+        response.setStatus(Status.OK.getStatusCode());
+        for (Entry<String, List<Object>> header : revalidated.getHeaders().entrySet()) {
+          if (!response.getHeaders().containsKey(header.getKey())) {
+            for (Object value : header.getValue()) {
+              response.getHeaders().add(header.getKey(), value.toString());
+            }
+          }
+        }
+        response.setEntityStream(new ByteArrayInputStream(revalidated.getBody()));
+        return;
+      }
+      cache.recordMiss();
+    }
+
+    if (response.getStatus() != Status.OK.getStatusCode()) {
+      return;
+    }
+    String vary = response.getHeaders().getFirst(HttpHeaders.VARY);
+    String eTag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+    if (directives.noStore || (vary != null && vary.trim().equals("*")) || (directives.maxAge <= 0 && eTag == null)) {
+      cache.remove(key);
+      return;
+    }
+
+    byte[] body = readBody(response);
+    if (body == null) {
+      return;
+    }
+    Map<String, String> varyValues = new HashMap<>();
+    if (vary != null) {
+      for (String header : vary.split(",")) {
+        if (!header.trim().isEmpty()) {
+          varyValues.put(header.trim(), request.getHeaderString(header.trim()));
+        }
+      }
+    }
+    //no-cache responses can be stored, but have to be revalidated before every use
+    long maxAge = directives.noCache ? 0 : Math.max(0, directives.maxAge - getAge(response));
+    cache.put(key, new CachedResponse(body, CachedResponse.copyHeaders(response.getHeaders()), eTag, varyValues, maxAge));
+  }
+
+  private String getKey(ClientRequestContext request) {
+    return clientName + " " + request.getUri();
+  }
+
+  //Reads the body into memory (and gives the caller a copy), or returns null if it is too large to be cached
+  private byte[] readBody(ClientResponseContext response) throws IOException {
+    if (!response.hasEntity()) {
+      return new byte[0];
+    }
+    InputStream is = response.getEntityStream();
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = is.read(buffer)) != -1) {
+      os.write(buffer, 0, read);
+      if (os.size() > cache.getMaxEntrySize()) {
+        //The caller still needs the whole body: the part read so far, followed by the rest of the original stream
+        response.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(os.toByteArray()), is));
+        return null;
+      }
+    }
+    byte[] body = os.toByteArray();
+    response.setEntityStream(new ByteArrayInputStream(body));
+    return body;
+  }
+
+  //Milliseconds the response already spent in other caches on the way
+  private static long getAge(ClientResponseContext response) {
+    String age = response.getHeaders().getFirst("Age");
+    try {
+      return age != null ? Long.parseLong(age.trim()) * 1000 : 0;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  //The Cache-Control directives relevant for a private cache, max-age is in milliseconds (-1 if missing)
+  private static final class Directives {
+
+    private boolean noStore;
+    private boolean noCache;
+    private long maxAge = -1;
+
+    private Directives(String cacheControl) {
+      if (cacheControl == null) {
+        return;
+      }
+      for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+        directive = directive.trim();
+        if (directive.equals("no-store")) {
+          noStore = true;
+        } else if (directive.equals("no-cache") || directive.startsWith("no-cache=")) {
+          noCache = true;
+        } else if (directive.startsWith("max-age=")) {
+          try {
+            maxAge = Long.parseLong(directive.substring("max-age=".length()).replace("\"", "").trim()) * 1000;
+          } catch (NumberFormatException e) {
+            //Malformed max-age means the response is stale
+            maxAge = 0;
+          }
+        }
+      }
+    }
+  }
+
+}
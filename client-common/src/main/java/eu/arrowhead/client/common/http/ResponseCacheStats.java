@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+//Point-in-time snapshot of the response cache, hits include the stale entries confirmed by a 304 response (revalidations)
+public class ResponseCacheStats {
+
+  private int entries;
+  private long size;
+  private long hits;
+  private long misses;
+  private long revalidations;
+  private long stores;
+  private long evictions;
+
+  public ResponseCacheStats() {
+  }
+
+  public ResponseCacheStats(int entries, long size, long hits, long misses, long revalidations, long stores, long evictions) {
+    this.entries = entries;
+    this.size = size;
+    this.hits = hits;
+    this.misses = misses;
+    this.revalidations = revalidations;
+    this.stores = stores;
+    this.evictions = evictions;
+  }
+
+  public int getEntries() {
+    return entries;
+  }
+
+  public void setEntries(int entries) {
+    this.entries = entries;
+  }
+
+  //Total size of the cached response bodies in bytes
+  public long getSize() {
+    return size;
+  }
+
+  public void setSize(long size) {
+    this.size = size;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public void setHits(long hits) {
+    this.hits = hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public void setMisses(long misses) {
+    this.misses = misses;
+  }
+
+  public long getRevalidations() {
+    return revalidations;
+  }
+
+  public void setRevalidations(long revalidations) {
+    this.revalidations = revalidations;
+  }
+
+  public long getStores() {
+    return stores;
+  }
+
+  public void setStores(long stores) {
+    this.stores = stores;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  public void setEvictions(long evictions) {
+    this.evictions = evictions;
+  }
+
+  public double getHitRatio() {
+    return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseCacheStats{" + "entries=" + entries + ", size=" + size + ", hits=" + hits + ", misses=" + misses + ", revalidations="
+        + revalidations + ", stores=" + stores + ", evictions=" + evictions + '}';
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+/*
+  Caps the retries at a percentage of the requests sent in the current time window (plus a small fixed allowance for low traffic), so retries
+  can not multiply the load on a destination which is already struggling.
+ */
+public class RetryBudget {
+
+  private static final long WINDOW_LENGTH = 10000;
+
+  private final int percent;
+  private final int minRetries;
+
+  private long windowStart = System.currentTimeMillis();
+  private long requests;
+  private long retries;
+
+  /**
+   * @param percent retries allowed in a window, as a percentage of the requests sent in the same window
+   * @param minRetries retries allowed in every window regardless of the traffic
+   */
+  public RetryBudget(int percent, int minRetries) {
+    if (percent < 0 || minRetries < 0) {
+      throw new IllegalArgumentException("Retry budget percent and minimum retries can not be negative!");
+    }
+    this.percent = percent;
+    this.minRetries = minRetries;
+  }
+
+  public synchronized void onRequest() {
+    roll();
+    requests++;
+  }
+
+  //Returns true (and withdraws from the budget) if one more retry fits into the current window
+  public synchronized boolean tryRetry() {
+    roll();
+    if (retries < minRetries + requests * percent / 100) {
+      retries++;
+      return true;
+    }
+    return false;
+  }
+
+  private void roll() {
+    long now = System.currentTimeMillis();
+    if (now - windowStart >= WINDOW_LENGTH) {
+      windowStart = now;
+      requests = 0;
+      retries = 0;
+    }
+  }
+
+}
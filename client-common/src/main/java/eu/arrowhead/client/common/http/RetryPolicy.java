@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.exception.ExceptionType;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+  Decides whether a failed request can be sent again, and how long to wait before doing so. Only transient failures are retried: connection
+  errors, and 503/504 responses which are either UNAVAILABLE errors of an Arrowhead system or came without an Arrowhead ErrorMessage (e.g. from a
+  proxy). Non-idempotent requests are only retried when the caller marked them safe with RequestOptions.
+ */
+public final class RetryPolicy {
+
+  private final int maxAttempts;
+  private final int initialBackoff;
+  private final int maxBackoff;
+  private final RetryBudget budget;
+
+  /**
+   * @param maxAttempts number of times a request is sent at most (1 disables retrying)
+   * @param initialBackoff upper bound of the random wait (in milliseconds) before the first retry, doubled for every further retry
+   * @param maxBackoff the upper bound of the random wait never grows beyond this (in milliseconds)
+   * @param budget shared limit on the number of retries
+   */
+  public RetryPolicy(int maxAttempts, int initialBackoff, int maxBackoff, RetryBudget budget) {
+    if (maxAttempts < 1 || initialBackoff < 0 || maxBackoff < initialBackoff) {
+      throw new IllegalArgumentException("Invalid retry policy: max attempts must be positive, and the max backoff can not be less than the initial!");
+    }
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    this.budget = budget;
+  }
+
+  public static RetryPolicy fromProperties(TypeSafeProperties props) {
+    RetryBudget budget = new RetryBudget(props.getIntProperty("http_retry_budget_percent", 20), props.getIntProperty("http_retry_budget_min", 10));
+    return new RetryPolicy(props.getIntProperty("http_retry_max_attempts", 1), props.getIntProperty("http_retry_initial_backoff", 100),
+                           props.getIntProperty("http_retry_max_backoff", 2000), budget);
+  }
+
+  //Number of times the given request can be sent at most. Also registers the request in the retry budget, so call it once per request.
+  public int startRequest(String method, RequestOptions options) {
+    budget.onRequest();
+    boolean idempotent = "GET".equals(method) || "PUT".equals(method) || "DELETE".equals(method);
+    if (!idempotent && !options.isRetrySafe()) {
+      return 1;
+    }
+    return options.getMaxAttempts() > 0 ? options.getMaxAttempts() : maxAttempts;
+  }
+
+  //Returns true if the attempt which just failed can be followed by another one (consumes the retry budget)
+  public boolean canRetry(int attempt, int maxAttempts) {
+    return attempt < maxAttempts && budget.tryRetry();
+  }
+
+  //Random wait before the given retry (1 = first retry), exponential backoff with full jitter
+  public long getBackoff(int retry) {
+    long bound = initialBackoff;
+    for (int i = 1; i < retry && bound < maxBackoff; i++) {
+      bound *= 2;
+    }
+    bound = Math.min(bound, maxBackoff);
+    return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+  }
+
+  public static boolean isRetryableStatus(int status) {
+    return status == 503 || status == 504;
+  }
+
+  //Error responses are only worth retrying if they are transient: UNAVAILABLE errors, or responses without an ErrorMessage (type is null)
+  public static boolean isRetryable(int status, ExceptionType exceptionType) {
+    return isRetryableStatus(status) && (exceptionType == null || exceptionType == ExceptionType.UNAVAILABLE);
+  }
+
+}
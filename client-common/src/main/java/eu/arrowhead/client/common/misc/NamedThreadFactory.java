@@ -0,0 +1,32 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.misc;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Creates daemon threads named <prefix>-<counter>, so background executors of the library never keep the JVM alive
+public class NamedThreadFactory implements ThreadFactory {
+
+  private final String prefix;
+  private final AtomicInteger counter = new AtomicInteger();
+
+  public NamedThreadFactory(String prefix) {
+    this.prefix = prefix;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+}
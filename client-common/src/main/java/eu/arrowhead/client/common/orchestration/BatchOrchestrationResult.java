@@ -0,0 +1,48 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.model.OrchestrationResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Outcome of a batch orchestration, keyed by the service definitions: every requested service is either in the responses or in the errors
+public class BatchOrchestrationResult {
+
+  private final Map<String, OrchestrationResponse> responses = new ConcurrentHashMap<>();
+  private final Map<String, ArrowheadException> errors = new ConcurrentHashMap<>();
+
+  void addResponse(String serviceDefinition, OrchestrationResponse response) {
+    responses.put(serviceDefinition, response);
+  }
+
+  void addError(String serviceDefinition, ArrowheadException error) {
+    errors.put(serviceDefinition, error);
+  }
+
+  public Map<String, OrchestrationResponse> getResponses() {
+    return responses;
+  }
+
+  public Map<String, ArrowheadException> getErrors() {
+    return errors;
+  }
+
+  public boolean isSuccessful() {
+    return errors.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "BatchOrchestrationResult{orchestrated=" + responses.keySet() + ", failed=" + errors.keySet() + "}";
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.exception.DataNotFoundException;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.OrchestrationResponse;
+import eu.arrowhead.client.common.model.ServiceRequestForm;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  Orchestrates many services at once (e.g. at the startup of a consumer needing dozens of services), so the time to be ready is about one
+  round trip instead of one per service. At most parallelism orchestration requests are in flight at the same time, they are sent with
+  Utility.sendRequestAsync, so no thread is blocked while waiting for the Orchestrator. The responses still valid in the orchestration cache
+  are used without sending anything, and the new responses are put into the cache.
+ */
+public class BatchOrchestrator {
+
+  private final String orchestratorUrl;
+  private final int parallelism;
+  private final OrchestrationCache cache;
+
+  /**
+   * @param orchestratorUrl URL of the orchestration service of the Orchestrator
+   * @param parallelism number of orchestration requests in flight at most
+   * @param cache the orchestration cache to use and fill (can be null)
+   */
+  public BatchOrchestrator(String orchestratorUrl, int parallelism, OrchestrationCache cache) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Batch orchestration parallelism must be positive!");
+    }
+    this.orchestratorUrl = orchestratorUrl;
+    this.parallelism = parallelism;
+    this.cache = cache;
+  }
+
+  public static BatchOrchestrator fromProperties(TypeSafeProperties props, String orchestratorUrl, OrchestrationCache cache) {
+    return new BatchOrchestrator(orchestratorUrl, props.getIntProperty("orchestration_batch_parallelism", 8), cache);
+  }
+
+  //Blocks until every form is orchestrated (or failed), the individual failures are in the errors of the result
+  public BatchOrchestrationResult orchestrate(Collection<ServiceRequestForm> forms) {
+    return Utility.join(orchestrateAsync(forms));
+  }
+
+  /*
+    The returned stage completes normally once every form is orchestrated or failed, and only completes exceptionally if processing a response
+    failed (e.g. the cache threw an exception). Throws IllegalArgumentException, if a form has no requested service, or more forms request the
+    same service definition (since the results are keyed by it).
+   */
+  public CompletionStage<BatchOrchestrationResult> orchestrateAsync(Collection<ServiceRequestForm> forms) {
+    Set<String> serviceDefinitions = new HashSet<>();
+    for (ServiceRequestForm srf : forms) {
+      String serviceDefinition = getServiceDefinition(srf);
+      if (serviceDefinition == null || !serviceDefinitions.add(serviceDefinition)) {
+        throw new IllegalArgumentException("Every form of a batch orchestration needs a requested service with a distinct service definition!");
+      }
+    }
+
+    BatchOrchestrationResult result = new BatchOrchestrationResult();
+    Queue<ServiceRequestForm> pending = new ConcurrentLinkedQueue<>();
+    for (ServiceRequestForm srf : forms) {
+      OrchestrationResponse cached = cache != null ? cache.getIfPresent(srf) : null;
+      if (cached != null) {
+        result.addResponse(getServiceDefinition(srf), cached);
+      } else {
+        pending.add(srf);
+      }
+    }
+
+    CompletableFuture<BatchOrchestrationResult> done = new CompletableFuture<>();
+    AtomicInteger remaining = new AtomicInteger(pending.size());
+    if (pending.isEmpty()) {
+      done.complete(result);
+    }
+    //Every lane sends the next pending form when its previous request finished, so at most parallelism requests are in flight
+    for (int i = 0; i < Math.min(parallelism, pending.size()); i++) {
+      runLane(pending, remaining, result, done);
+    }
+    return done;
+  }
+
+  /*
+    Sends the pending forms one after the other. The requests completed by the time sendRequestAsync returns (e.g. rejected by an open circuit
+    breaker) are followed by the next one in this loop, instead of from their callback, so a long batch can not overflow the stack.
+   */
+  private void runLane(Queue<ServiceRequestForm> pending, AtomicInteger remaining, BatchOrchestrationResult result,
+                       CompletableFuture<BatchOrchestrationResult> done) {
+    ServiceRequestForm srf;
+    while (!done.isDone() && (srf = pending.poll()) != null) {
+      ServiceRequestForm form = srf;
+      CompletableFuture<Void> processed = Utility.sendRequestAsync(orchestratorUrl, "POST", form, OrchestrationResponse.class)
+                                                 .toCompletableFuture()
+                                                 .handle((response, error) -> {
+                                                   process(form, response, error, remaining, result, done);
+                                                   return null;
+                                                 });
+      if (!processed.isDone()) {
+        processed.thenRun(() -> runLane(pending, remaining, result, done));
+        return;
+      }
+    }
+  }
+
+  private void process(ServiceRequestForm srf, OrchestrationResponse response, Throwable error, AtomicInteger remaining,
+                       BatchOrchestrationResult result, CompletableFuture<BatchOrchestrationResult> done) {
+    String serviceDefinition = getServiceDefinition(srf);
+    try {
+      if (error != null) {
+        result.addError(serviceDefinition, Utility.toArrowheadException(error, "Orchestration of " + serviceDefinition + " failed"));
+      } else if (response == null || response.getResponse().isEmpty()) {
+        result.addError(serviceDefinition, new DataNotFoundException("Orchestrator returned with 0 Orchestration Forms for " + serviceDefinition));
+      } else {
+        if (cache != null) {
+          cache.put(srf, response);
+        }
+        result.addResponse(serviceDefinition, response);
+      }
+    } catch (RuntimeException e) {
+      //Nobody would complete the result otherwise, the caller would wait forever
+      done.completeExceptionally(e);
+      return;
+    }
+
+    if (remaining.decrementAndGet() == 0) {
+      done.complete(result);
+    }
+  }
+
+  private static String getServiceDefinition(ServiceRequestForm srf) {
+    return srf.getRequestedService() != null ? srf.getRequestedService().getServiceDefinition() : null;
+  }
+
+}
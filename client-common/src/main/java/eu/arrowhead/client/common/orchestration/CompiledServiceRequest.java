@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import eu.arrowhead.client.common.misc.JacksonJsonProviderAtRest;
+import eu.arrowhead.client.common.model.ServiceRequestForm;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import javax.ws.rs.core.StreamingOutput;
+
+/*
+  A ServiceRequestForm serialized to JSON only once. It can be given as the payload to the Utility request methods (instead of the form itself),
+  and its bytes are written to every orchestration request as they are, without serializing the same form again and again.
+  The inputs are the values the form was built from (e.g. system name, security mode): a new form only has to be built and compiled when
+  isCompiledFrom returns false for the current inputs. The compiled form is shared, it must not be modified (modify a copy, or compile again).
+ */
+public final class CompiledServiceRequest implements StreamingOutput {
+
+  private final ServiceRequestForm form;
+  private final List<?> inputs;
+  private final byte[] json;
+
+  private CompiledServiceRequest(ServiceRequestForm form, List<?> inputs, byte[] json) {
+    this.form = form;
+    this.inputs = inputs;
+    this.json = json;
+  }
+
+  public static CompiledServiceRequest compile(ServiceRequestForm form) {
+    return compile(form, Collections.emptyList());
+  }
+
+  public static CompiledServiceRequest compile(ServiceRequestForm form, List<?> inputs) {
+    Objects.requireNonNull(form, "ServiceRequestForm cannot be null.");
+    try {
+      byte[] json = JacksonJsonProviderAtRest.getMapper().writer().without(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(form);
+      return new CompiledServiceRequest(form, Collections.unmodifiableList(inputs), json);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("ServiceRequestForm could not be serialized: " + e.getMessage(), e);
+    }
+  }
+
+  //True if this is the compiled version of exactly this form instance (so it can be sent instead of the form)
+  public boolean isCompiledFrom(ServiceRequestForm form) {
+    return this.form == form;
+  }
+
+  //True if the form was built from the same inputs, so there is no need to compile a new one
+  public boolean isCompiledFrom(List<?> inputs) {
+    return this.inputs.equals(inputs);
+  }
+
+  public ServiceRequestForm getForm() {
+    return form;
+  }
+
+  public int getLength() {
+    return json.length;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException {
+    output.write(json);
+  }
+
+  //The compact JSON payload
+  @Override
+  public String toString() {
+    return new String(json, StandardCharsets.UTF_8);
+  }
+
+}
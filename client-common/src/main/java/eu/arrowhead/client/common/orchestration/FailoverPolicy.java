@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.exception.AuthException;
+import eu.arrowhead.client.common.exception.DeadlineExceededException;
+import eu.arrowhead.client.common.exception.TooManyRequestsException;
+import eu.arrowhead.client.common.exception.UnavailableServerException;
+import eu.arrowhead.client.common.http.CircuitBreakerRegistry;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.ServiceRequestForm;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+  Failover of a service consumption across the providers returned by the Orchestrator:
+    1) The call is tried with the provider URLs in order, skipping the temporarily blacklisted ones. A provider failing with
+       UnavailableServerException (no response, 503, 504, open circuit breaker) is blacklisted for the blacklist duration, then the call is tried
+       with the remaining URLs.
+    2) Once every URL is exhausted, the orchestration is repeated (at most maxReorchestrations times) with the pingProviders flag set, so only
+       the providers reachable by the Service Registry are returned. The cached responses for the request are invalidated first.
+  A TooManyRequestsException (429) means the provider is working, but this consumer exceeded its quota: the provider is only skipped for the
+  Retry-After time, and the call is tried with the next URL (without a fresh orchestration, if none is left).
+  An AuthException from a provider means the authorization token was rejected (e.g. it expired): the cached response is invalidated, and the
+  orchestration is repeated right away, without blacklisting the provider. A DeadlineExceededException (the caller ran out of time) and every
+  other exception is thrown to the caller as is.
+ */
+public class FailoverPolicy {
+
+  private final long blacklistDuration;
+  private final int maxReorchestrations;
+  private final OrchestrationCache cache;
+  //Destination (scheme://host:port) -> end of the blacklisting (System.currentTimeMillis)
+  private final Map<String, Long> blacklist = new ConcurrentHashMap<>();
+
+  /**
+   * @param blacklistDuration milliseconds while a failed provider is skipped
+   * @param maxReorchestrations number of fresh orchestrations after all the providers failed
+   * @param cache the orchestration cache to invalidate before a fresh orchestration (can be null)
+   */
+  public FailoverPolicy(long blacklistDuration, int maxReorchestrations, OrchestrationCache cache) {
+    if (blacklistDuration < 0 || maxReorchestrations < 0) {
+      throw new IllegalArgumentException("Failover blacklist duration and maximum re-orchestrations can not be negative!");
+    }
+    this.blacklistDuration = blacklistDuration;
+    this.maxReorchestrations = maxReorchestrations;
+    this.cache = cache;
+  }
+
+  //Returns null if failover is disabled in the config files
+  public static FailoverPolicy fromProperties(TypeSafeProperties props, OrchestrationCache cache) {
+    if (!props.getBooleanProperty("failover_enabled", false)) {
+      return null;
+    }
+    return new FailoverPolicy(props.getIntProperty("failover_blacklist_duration", 30000), props.getIntProperty("failover_reorchestrations", 1),
+                              cache);
+  }
+
+  /**
+   * @param srf the orchestration request the provider URLs were returned for
+   * @param urls the provider URLs in the preferred order
+   * @param orchestrator sends an orchestration request, and returns the provider URLs in the preferred order
+   * @param call consumes the service with the first of the given URLs (the rest can be used for hedging)
+   */
+  public <R> R execute(ServiceRequestForm srf, List<String> urls, Function<ServiceRequestForm, List<String>> orchestrator,
+                       Function<List<String>, R> call) {
+    List<String> candidates = removeBlacklisted(urls, false);
+    ArrowheadException lastError = null;
+    for (int reorchestrations = 0; ; reorchestrations++) {
+      while (!candidates.isEmpty()) {
+        try {
+          return call.apply(candidates);
+        } catch (DeadlineExceededException e) {
+          //The caller ran out of time, the provider might be healthy, and there is no time left for another one anyway
+          throw e;
+        } catch (TooManyRequestsException e) {
+          //The provider is alive, it is only skipped for as long as it asked to (or for 1 second)
+          lastError = e;
+          blacklist(candidates.get(0), Math.max(1000, TimeUnit.SECONDS.toMillis(e.getRetryAfter())));
+          System.out.println("Provider at " + candidates.get(0) + " throttled the request, trying the next one: " + e.getMessage());
+          candidates = candidates.subList(1, candidates.size());
+        } catch (UnavailableServerException e) {
+          lastError = e;
+          blacklist(candidates.get(0));
+          System.out.println("Provider at " + candidates.get(0) + " failed, failing over: " + e.getMessage());
+          candidates = candidates.subList(1, candidates.size());
+        } catch (AuthException e) {
+          //The token was most likely rejected, the other forms of the same response probably have the same problem
+          lastError = e;
+          System.out.println("Provider at " + candidates.get(0) + " rejected the request, re-orchestrating: " + e.getMessage());
+          break;
+        }
+      }
+
+      //A fresh orchestration would return the same (working, just busy) provider
+      if (reorchestrations >= maxReorchestrations || lastError instanceof TooManyRequestsException) {
+        throw lastError != null ? lastError : new UnavailableServerException("Every provider is blacklisted for " + getServiceName(srf), 503);
+      }
+      ServiceRequestForm pingingSrf = withPingProviders(srf);
+      if (cache != null) {
+        cache.invalidate(srf);
+        cache.invalidate(pingingSrf);
+      }
+      //The Service Registry just pinged these providers, so they are tried even if they are blacklisted
+      candidates = removeBlacklisted(orchestrator.apply(pingingSrf), true);
+    }
+  }
+
+  public void blacklist(String uri) {
+    blacklist(uri, blacklistDuration);
+  }
+
+  public void blacklist(String uri, long duration) {
+    if (duration > 0) {
+      blacklist.put(getDestination(uri), System.currentTimeMillis() + duration);
+    }
+  }
+
+  public boolean isBlacklisted(String uri) {
+    String destination = getDestination(uri);
+    Long until = blacklist.get(destination);
+    if (until == null) {
+      return false;
+    }
+    if (until <= System.currentTimeMillis()) {
+      blacklist.remove(destination, until);
+      return false;
+    }
+    return true;
+  }
+
+  //The URLs which are not blacklisted, in the same order (all of them, if every one is blacklisted and keepIfAllBlacklisted is true)
+  private List<String> removeBlacklisted(List<String> urls, boolean keepIfAllBlacklisted) {
+    List<String> allowed = new ArrayList<>(urls.size());
+    for (String url : urls) {
+      if (!isBlacklisted(url)) {
+        allowed.add(url);
+      }
+    }
+    return allowed.isEmpty() && keepIfAllBlacklisted ? new ArrayList<>(urls) : allowed;
+  }
+
+  private static ServiceRequestForm withPingProviders(ServiceRequestForm srf) {
+    Map<String, Boolean> flags = new HashMap<>(srf.getOrchestrationFlags());
+    flags.put("pingProviders", true);
+    return new ServiceRequestForm.Builder(srf.getRequesterSystem()).requesterCloud(srf.getRequesterCloud())
+                                                                   .requestedService(srf.getRequestedService()).orchestrationFlags(flags)
+                                                                   .preferredProviders(srf.getPreferredProviders())
+                                                                   .requestedQoS(srf.getRequestedQoS()).commands(srf.getCommands()).build();
+  }
+
+  private static String getServiceName(ServiceRequestForm srf) {
+    return srf.getRequestedService() != null ? srf.getRequestedService().getServiceDefinition() : "the requested service";
+  }
+
+  private static String getDestination(String uri) {
+    return CircuitBreakerRegistry.getDestination(URI.create(uri));
+  }
+
+}
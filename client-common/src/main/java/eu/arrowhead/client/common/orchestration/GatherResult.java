@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Outcome of a scatter-gather call, keyed by the provider URLs: every URL is either in the results, or in the errors (a missed deadline too)
+public class GatherResult<R> {
+
+  private final int requested;
+  private final int quorum;
+  private final Map<String, R> results = new ConcurrentHashMap<>();
+  private final Map<String, ArrowheadException> errors = new ConcurrentHashMap<>();
+
+  GatherResult(int requested, int quorum) {
+    this.requested = requested;
+    this.quorum = quorum;
+  }
+
+  void addResult(String url, R result) {
+    results.put(url, result);
+  }
+
+  void addError(String url, ArrowheadException error) {
+    errors.put(url, error);
+  }
+
+  public Map<String, R> getResults() {
+    return results;
+  }
+
+  public Map<String, ArrowheadException> getErrors() {
+    return errors;
+  }
+
+  //Number of providers the request was sent to
+  public int getRequested() {
+    return requested;
+  }
+
+  //Number of successful results needed for a valid (possibly partial) result
+  public int getQuorum() {
+    return quorum;
+  }
+
+  public boolean isQuorumReached() {
+    return results.size() >= quorum;
+  }
+
+  public boolean isComplete() {
+    return results.size() == requested;
+  }
+
+}
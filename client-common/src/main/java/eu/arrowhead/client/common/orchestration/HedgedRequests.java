@@ -0,0 +1,189 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.http.RequestOptions;
+import eu.arrowhead.client.common.misc.NamedThreadFactory;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response;
+
+/*
+  Hedged requests against the providers of the same service (e.g. every form of an OrchestrationResponse): the request goes to the first
+  provider, and if it has not answered by the hedge delay (a percentile of the recently observed latencies), a duplicate request goes to the
+  next provider (up to maxHedges duplicates). The first successful response wins, the rest of the requests are cancelled. A failed request
+  triggers the next hedge right away, the call only fails if every started request failed and there are no providers left.
+
+  Only use it for idempotent requests, the duplicates can reach more than one provider.
+ */
+public class HedgedRequests {
+
+  private static final ScheduledExecutorService timer =
+      Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("arrowhead-hedging-timer"));
+
+  private final double percentile;
+  private final long initialDelay;
+  private final long minDelay;
+  private final int maxHedges;
+  private final int minSamples;
+  private final LatencyTracker latencies;
+
+  /**
+   * @param percentile the hedge delay is this percentile (0-100) of the recent latencies
+   * @param initialDelay hedge delay (milliseconds) used until there are enough samples to calculate the percentile
+   * @param minDelay the hedge delay is never shorter than this (milliseconds)
+   * @param maxHedges number of duplicate requests sent at most
+   * @param windowSize number of recent latencies the percentile is calculated from
+   */
+  public HedgedRequests(double percentile, long initialDelay, long minDelay, int maxHedges, int windowSize) {
+    if (percentile <= 0 || percentile > 100 || initialDelay < 0 || minDelay < 0 || maxHedges < 0) {
+      throw new IllegalArgumentException("Invalid hedging parameters: the percentile must be in (0, 100], the rest can not be negative!");
+    }
+    this.percentile = percentile;
+    this.initialDelay = initialDelay;
+    this.minDelay = minDelay;
+    this.maxHedges = maxHedges;
+    this.minSamples = Math.min(windowSize, 20);
+    this.latencies = new LatencyTracker(windowSize);
+  }
+
+  //Returns null if hedging is disabled in the config files
+  public static HedgedRequests fromProperties(TypeSafeProperties props) {
+    if (!props.getBooleanProperty("hedging_enabled", false)) {
+      return null;
+    }
+    return new HedgedRequests(props.getIntProperty("hedging_percentile", 95), props.getIntProperty("hedging_initial_delay", 100),
+                              props.getIntProperty("hedging_min_delay", 10), props.getIntProperty("hedging_max_hedges", 1),
+                              props.getIntProperty("hedging_window", 200));
+  }
+
+  //Blocking version of exchangeAsync, throws the same exceptions as Utility.exchange
+  public <T, R> R exchange(List<String> urls, String method, T payload, Class<R> responseType) {
+    return Utility.join(exchangeAsync(urls, method, payload, responseType));
+  }
+
+  public <T, R> CompletionStage<R> exchangeAsync(List<String> urls, String method, T payload, Class<R> responseType) {
+    if (urls == null || urls.isEmpty()) {
+      throw new IllegalArgumentException("At least one URL is needed for a hedged request!");
+    }
+    Hedge<T, R> hedge = new Hedge<>(urls.subList(0, Math.min(urls.size(), maxHedges + 1)), method, payload, responseType);
+    hedge.sendNext();
+    return hedge.result;
+  }
+
+  //The current hedge delay in milliseconds
+  public long getHedgeDelay() {
+    if (latencies.getCount() < minSamples) {
+      return Math.max(minDelay, initialDelay);
+    }
+    return Math.max(minDelay, latencies.getPercentile(percentile));
+  }
+
+  //One hedged call: the requests sent so far and the shared result
+  private final class Hedge<T, R> {
+
+    private final List<String> urls;
+    private final String method;
+    private final T payload;
+    private final Class<R> responseType;
+    private final CompletableFuture<R> result = new CompletableFuture<>();
+    private final List<CompletableFuture<Response>> requests = new ArrayList<>();
+    private int started;
+    private int failed;
+    private Throwable lastError;
+
+    private Hedge(List<String> urls, String method, T payload, Class<R> responseType) {
+      this.urls = urls;
+      this.method = method;
+      this.payload = payload;
+      this.responseType = responseType;
+    }
+
+    //Sends the request to the next provider (if there is one left), and schedules the hedge after it
+    private void sendNext() {
+      String url;
+      synchronized (this) {
+        if (result.isDone() || started == urls.size()) {
+          return;
+        }
+        url = urls.get(started++);
+      }
+      long start = System.currentTimeMillis();
+      //The hedges already provide the redundancy, retrying the individual requests would only delay them
+      CompletableFuture<Response> request = Utility
+          .sendRequestAsync(url, method, payload, null, new RequestOptions.Builder().maxAttempts(1).build()).toCompletableFuture();
+      synchronized (this) {
+        requests.add(request);
+      }
+      request.whenComplete((response, error) -> {
+        if (error == null) {
+          onResponse(response, System.currentTimeMillis() - start);
+        } else {
+          onFailure(error);
+        }
+      });
+      synchronized (this) {
+        if (started < urls.size()) {
+          timer.schedule(this::sendNext, getHedgeDelay(), TimeUnit.MILLISECONDS);
+        }
+      }
+    }
+
+    private void onResponse(Response response, long latency) {
+      latencies.record(latency);
+      if (result.isDone()) {
+        response.close();
+        return;
+      }
+      R entity;
+      try {
+        entity = Utility.readAndClose(response, responseType);
+      } catch (RuntimeException e) {
+        onFailure(e);
+        return;
+      }
+      if (result.complete(entity)) {
+        cancelOthers();
+      }
+    }
+
+    private void onFailure(Throwable error) {
+      Throwable cause = Utility.unwrapCompletionException(error);
+      boolean allFailed;
+      synchronized (this) {
+        failed++;
+        lastError = cause;
+        allFailed = failed == urls.size();
+      }
+      if (allFailed) {
+        result.completeExceptionally(lastError instanceof RuntimeException ? lastError : new ArrowheadException("Hedged request failed", lastError));
+      } else {
+        //No point waiting for the hedge delay, the next provider is asked right away
+        sendNext();
+      }
+    }
+
+    //The responses of the losers are closed as soon as they arrive (the connectors can not abort a request already sent)
+    private synchronized void cancelOthers() {
+      for (CompletableFuture<Response> request : requests) {
+        request.cancel(false);
+      }
+    }
+  }
+
+}
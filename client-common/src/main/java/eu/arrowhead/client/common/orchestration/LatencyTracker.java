@@ -0,0 +1,54 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import java.util.Arrays;
+
+//Keeps the most recent latency samples (in milliseconds) in a ring buffer, to estimate their percentiles
+public class LatencyTracker {
+
+  private final long[] samples;
+  private int position;
+  private int count;
+
+  public LatencyTracker(int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("Latency tracker window size must be positive!");
+    }
+    samples = new long[windowSize];
+  }
+
+  public synchronized void record(long latency) {
+    samples[position] = latency;
+    position = (position + 1) % samples.length;
+    if (count < samples.length) {
+      count++;
+    }
+  }
+
+  public synchronized int getCount() {
+    return count;
+  }
+
+  //The given percentile (0-100) of the recorded samples (nearest rank), or -1 if there are no samples yet
+  public long getPercentile(double percentile) {
+    long[] sorted;
+    synchronized (this) {
+      if (count == 0) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(samples, count);
+    }
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+    return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+  }
+
+}
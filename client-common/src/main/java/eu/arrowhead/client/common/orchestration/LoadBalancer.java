@@ -0,0 +1,157 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.http.CircuitBreakerRegistry;
+import eu.arrowhead.client.common.http.RequestListener;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.OrchestrationResponse;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Client side load balancer over the providers of an OrchestrationResponse (power of two choices): picks 2 random providers, and uses the one
+  with the lower cost. The cost of a provider is its (peak) EWMA latency multiplied by its outstanding requests (+1), both measured by Utility
+  .sendRequest/sendRequestAsync through the RequestListener interface, per destination (scheme://host:port).
+  Failed attempts (no response, 502, 503, 504) count with at least the failure penalty as latency. The EWMA of an idle destination decays
+  towards 0, so a provider which was slow (or down) once gets probed again later.
+ */
+public class LoadBalancer implements RequestListener {
+
+  private final long decay;
+  private final long failurePenalty;
+  private final ConcurrentMap<String, Score> scores = new ConcurrentHashMap<>();
+
+  /**
+   * @param decay time constant of the EWMA latency (milliseconds), older samples count less and less after this time
+   * @param failurePenalty the latency recorded for a failed attempt at least (milliseconds)
+   */
+  public LoadBalancer(long decay, long failurePenalty) {
+    if (decay < 1 || failurePenalty < 0) {
+      throw new IllegalArgumentException("Load balancer decay must be positive, and the failure penalty can not be negative!");
+    }
+    this.decay = TimeUnit.MILLISECONDS.toNanos(decay);
+    this.failurePenalty = TimeUnit.MILLISECONDS.toNanos(failurePenalty);
+  }
+
+  //Returns null if load balancing is disabled in the config files, otherwise the balancer is already listening to the sent requests
+  public static LoadBalancer fromProperties(TypeSafeProperties props) {
+    if (!props.getBooleanProperty("load_balancing_enabled", false)) {
+      return null;
+    }
+    LoadBalancer balancer = new LoadBalancer(props.getIntProperty("load_balancing_decay", 10000),
+                                             props.getIntProperty("load_balancing_failure_penalty", 5000));
+    Utility.addRequestListener(balancer);
+    return balancer;
+  }
+
+  //Picks the URL the next request should go to (by power of two choices over the cost of their destinations)
+  public String choose(List<String> urls) {
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("There are no provider URLs to choose from!");
+    }
+    return urls.get(chooseIndex(urls));
+  }
+
+  public String choose(OrchestrationResponse response) {
+    return choose(OrchestrationForms.getProviderUrls(response));
+  }
+
+  //The chosen URL first, then the rest in their original order, so failover and hedging can still use the other providers
+  public List<String> order(List<String> urls) {
+    if (urls.size() < 2) {
+      return urls;
+    }
+    int chosen = chooseIndex(urls);
+    List<String> ordered = new ArrayList<>(urls.size());
+    ordered.add(urls.get(chosen));
+    for (int i = 0; i < urls.size(); i++) {
+      if (i != chosen) {
+        ordered.add(urls.get(i));
+      }
+    }
+    return ordered;
+  }
+
+  //The current cost of the destination of the given URL (EWMA latency in milliseconds * (outstanding requests + 1))
+  public double getCost(String uri) {
+    Score score = scores.get(getDestination(uri));
+    return score == null ? 1 : score.getCost(System.nanoTime());
+  }
+
+  @Override
+  public void onAttemptStart(String uri) {
+    getScore(uri).start();
+  }
+
+  @Override
+  public void onAttemptEnd(String uri, long latencyNanos, int status) {
+    boolean failed = status == 0 || status == 502 || status == 503 || status == 504;
+    getScore(uri).end(failed ? Math.max(latencyNanos, failurePenalty) : latencyNanos);
+  }
+
+  private int chooseIndex(List<String> urls) {
+    if (urls.size() == 1) {
+      return 0;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(urls.size());
+    //Second pick from the rest of the list
+    int second = (first + 1 + random.nextInt(urls.size() - 1)) % urls.size();
+    return getCost(urls.get(second)) < getCost(urls.get(first)) ? second : first;
+  }
+
+  private Score getScore(String uri) {
+    return scores.computeIfAbsent(getDestination(uri), destination -> new Score());
+  }
+
+  private static String getDestination(String uri) {
+    return CircuitBreakerRegistry.getDestination(URI.create(uri));
+  }
+
+  private final class Score {
+
+    private double ewma;
+    private long lastUpdate;
+    private boolean measured;
+    private int outstanding;
+
+    private synchronized void start() {
+      outstanding++;
+    }
+
+    private synchronized void end(long latency) {
+      outstanding = Math.max(0, outstanding - 1);
+      long now = System.nanoTime();
+      if (measured && latency < ewma) {
+        double weight = Math.exp(-(double) (now - lastUpdate) / decay);
+        ewma = ewma * weight + latency * (1 - weight);
+      } else {
+        //Peak sensitive: a slower answer raises the average right away, so a provider slowing down loses its traffic quickly
+        ewma = latency;
+        measured = true;
+      }
+      lastUpdate = now;
+    }
+
+    private synchronized double getCost(long now) {
+      //Unmeasured and long idle destinations cost close to nothing, so they get (re)probed
+      double latency = measured ? ewma * Math.exp(-(double) (now - lastUpdate) / decay) : 0;
+      return (latency / TimeUnit.MILLISECONDS.toNanos(1) + 1) * (outstanding + 1);
+    }
+  }
+
+}
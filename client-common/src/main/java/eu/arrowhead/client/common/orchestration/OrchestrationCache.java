@@ -0,0 +1,464 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import eu.arrowhead.client.common.misc.JacksonJsonProviderAtRest;
+import eu.arrowhead.client.common.misc.NamedThreadFactory;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.ArrowheadService;
+import eu.arrowhead.client.common.model.ArrowheadSystem;
+import eu.arrowhead.client.common.model.OrchestrationForm;
+import eu.arrowhead.client.common.model.OrchestrationResponse;
+import eu.arrowhead.client.common.model.ServiceRequestForm;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+  Caches the OrchestrationResponses of a consumer, keyed by the requester system, the requested service and the orchestration flags of the
+  ServiceRequestForm. An entry lives for the cache TTL, or for the lifetime of the authorization tokens in it, whichever is shorter (the tokens
+  are encrypted for the provider, so their expiry can not be read by the consumer, the lifetime has to match the token duration configured at
+  the Orchestrator). After refreshAhead percent of its lifetime, the next read of an entry still returns it, but also starts a background
+  re-orchestration, so a steady stream of consumptions never has to wait for the Orchestrator.
+
+  The cached responses are shared between the callers, they must not be modified.
+
+  With a snapshot file, the entries are saved (in the background, after every change) to a compact JSON file, which is replaced atomically by
+  a rename, so a crash never leaves a half written snapshot behind. The entries restored at the next startup are usable right away (until
+  their original expiry), while they are re-validated with the Orchestrator in the background. The snapshot contains the authorization tokens
+  of the responses, so the file is only readable by its owner.
+ */
+public class OrchestrationCache {
+
+  private static final ExecutorService refresher = Executors.newSingleThreadExecutor(new NamedThreadFactory("arrowhead-orchestration-refresh"));
+
+  private final long ttl;
+  private final long tokenLifetime;
+  private final int refreshAhead;
+  private final Function<ServiceRequestForm, OrchestrationResponse> orchestrator;
+  private final ConcurrentMap<Key, CachedOrchestration> entries = new ConcurrentHashMap<>();
+  //Incremented by every invalidation, so an orchestration started before it does not put back the invalidated forms
+  private final AtomicLong invalidations = new AtomicLong();
+  private final AtomicBoolean saveScheduled = new AtomicBoolean();
+  private volatile Path snapshotFile;
+
+  /**
+   * @param ttl lifetime of the entries without authorization tokens (milliseconds)
+   * @param tokenLifetime lifetime of the entries with authorization tokens, if shorter than the ttl (milliseconds)
+   * @param refreshAhead percentage (1-100) of the lifetime after which reading an entry triggers a background refresh (100 disables it)
+   * @param orchestrator sends the actual orchestration request
+   */
+  public OrchestrationCache(long ttl, long tokenLifetime, int refreshAhead, Function<ServiceRequestForm, OrchestrationResponse> orchestrator) {
+    if (ttl < 0 || tokenLifetime < 0 || refreshAhead < 1 || refreshAhead > 100) {
+      throw new IllegalArgumentException("Orchestration cache lifetimes can not be negative, and refresh ahead must be between 1 and 100!");
+    }
+    this.ttl = ttl;
+    this.tokenLifetime = tokenLifetime;
+    this.refreshAhead = refreshAhead;
+    this.orchestrator = orchestrator;
+  }
+
+  //Returns null if the cache is disabled in the config files (opt-in)
+  public static OrchestrationCache fromProperties(TypeSafeProperties props, Function<ServiceRequestForm, OrchestrationResponse> orchestrator) {
+    if (!props.getBooleanProperty("orchestration_cache_enabled", false)) {
+      return null;
+    }
+    long ttl = props.getIntProperty("orchestration_cache_ttl", 300000);
+    long tokenLifetime = props.getIntProperty("orchestration_token_lifetime", 3600000);
+    OrchestrationCache cache = new OrchestrationCache(ttl, tokenLifetime, props.getIntProperty("orchestration_refresh_ahead", 80), orchestrator);
+    String snapshotFile = props.getProperty("orchestration_cache_file", "");
+    if (!snapshotFile.isEmpty()) {
+      cache.setSnapshotFile(Paths.get(snapshotFile));
+    }
+    return cache;
+  }
+
+  //The entries are saved to this file after every change (null disables the snapshots)
+  public void setSnapshotFile(Path snapshotFile) {
+    this.snapshotFile = snapshotFile;
+  }
+
+  /*
+    Loads the unexpired entries of the snapshot file, and starts their re-validation in the background (so the orchestrator function has to
+    be usable already). Returns the number of restored entries. A missing or unreadable snapshot is not an error, the cache just starts empty.
+   */
+  public int restore() {
+    Path file = snapshotFile;
+    if (file == null || !Files.exists(file)) {
+      return 0;
+    }
+    SnapshotEntry[] snapshot;
+    try {
+      snapshot = JacksonJsonProviderAtRest.getMapper().readValue(file.toFile(), SnapshotEntry[].class);
+    } catch (IOException e) {
+      System.out.println("Orchestration cache snapshot " + file + " could not be read: " + e.getMessage());
+      return 0;
+    }
+
+    int restored = 0;
+    long now = System.currentTimeMillis();
+    for (SnapshotEntry entry : snapshot) {
+      if (entry.request == null || entry.response == null || entry.expiresAt <= now) {
+        continue;
+      }
+      long nanoNow = System.nanoTime();
+      //Refresh is due right away, the Orchestrator might have changed its mind while this consumer was down
+      CachedOrchestration cached = new CachedOrchestration(entry.request, entry.response,
+                                                           nanoNow + TimeUnit.MILLISECONDS.toNanos(entry.expiresAt - now), nanoNow);
+      Key key = new Key(entry.request);
+      if (entries.putIfAbsent(key, cached) == null) {
+        restored++;
+        cached.refreshing.set(true);
+        refreshInBackground(key, entry.request, cached);
+      }
+    }
+    System.out.println("Restored " + restored + " orchestration response(s) from " + file);
+    return restored;
+  }
+
+  //Writes every unexpired entry to the snapshot file (to a temporary file first, which then replaces the snapshot atomically)
+  public synchronized void save() {
+    Path file = snapshotFile;
+    if (file == null) {
+      return;
+    }
+    List<SnapshotEntry> snapshot = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    long nanoNow = System.nanoTime();
+    for (CachedOrchestration cached : entries.values()) {
+      if (!cached.isExpired()) {
+        snapshot.add(new SnapshotEntry(cached.srf, cached.response, now + TimeUnit.NANOSECONDS.toMillis(cached.expiresAt - nanoNow)));
+      }
+    }
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      createPrivateFile(temporary);
+      try (OutputStream os = Files.newOutputStream(temporary, StandardOpenOption.TRUNCATE_EXISTING)) {
+        JacksonJsonProviderAtRest.getMapper().writer().without(SerializationFeature.INDENT_OUTPUT).writeValue(os, snapshot);
+      }
+      try {
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      //The cache works without the snapshot, only the next restart will be slower
+      System.out.println("Orchestration cache snapshot " + file + " could not be saved: " + e.getMessage());
+    }
+  }
+
+  //The snapshot holds authorization tokens, so only the owner of the process can read it (on file systems with POSIX permissions)
+  private static void createPrivateFile(Path file) throws IOException {
+    Files.deleteIfExists(file);
+    if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(file);
+    }
+  }
+
+  //The cached response for the form, or a fresh one from the Orchestrator if there is no valid entry
+  public OrchestrationResponse get(ServiceRequestForm srf) {
+    OrchestrationResponse cached = getIfPresent(srf);
+    return cached != null ? cached : orchestrate(new Key(srf), srf);
+  }
+
+  //The cached response for the form, or null if there is no valid entry (the Orchestrator is only contacted for a refresh ahead)
+  public OrchestrationResponse getIfPresent(ServiceRequestForm srf) {
+    Key key = new Key(srf);
+    CachedOrchestration cached = entries.get(key);
+    if (cached == null || cached.isExpired()) {
+      return null;
+    }
+    if (cached.needsRefresh() && cached.refreshing.compareAndSet(false, true)) {
+      refreshInBackground(key, srf, cached);
+    }
+    return cached.response;
+  }
+
+  //Caches a response received outside of this cache (e.g. by a batch orchestration), empty responses are ignored
+  public void put(ServiceRequestForm srf, OrchestrationResponse response) {
+    if (response != null && !response.getResponse().isEmpty()) {
+      entries.put(new Key(srf), new CachedOrchestration(srf, response, getLifetime(response)));
+      scheduleSave();
+    }
+  }
+
+  //Drops the cached response for the form, the next get goes to the Orchestrator (e.g. when a provider rejected the token)
+  public void invalidate(ServiceRequestForm srf) {
+    invalidations.incrementAndGet();
+    if (entries.remove(new Key(srf)) != null) {
+      scheduleSave();
+    }
+  }
+
+  public void invalidateAll() {
+    invalidations.incrementAndGet();
+    entries.clear();
+    scheduleSave();
+  }
+
+  /*
+    Removes the forms of the given provider (offering the given service, or any service if the definition is null) from the cached responses,
+    while the rest of the forms stay cached with their original lifetime. Entries without any remaining form are dropped. Returns the number of
+    affected entries.
+   */
+  public int invalidateProvider(ArrowheadSystem provider, String serviceDefinition) {
+    invalidations.incrementAndGet();
+    int affected = 0;
+    for (Key key : entries.keySet()) {
+      if (serviceDefinition != null && !serviceDefinition.equals(key.serviceDefinition)) {
+        continue;
+      }
+      boolean[] changed = new boolean[1];
+      entries.computeIfPresent(key, (k, cached) -> {
+        List<OrchestrationForm> remaining = new ArrayList<>();
+        for (OrchestrationForm form : cached.response.getResponse()) {
+          if (!provider.equals(form.getProvider())) {
+            remaining.add(form);
+          }
+        }
+        if (remaining.size() == cached.response.getResponse().size()) {
+          return cached;
+        }
+        changed[0] = true;
+        return remaining.isEmpty() ? null : new CachedOrchestration(cached.srf, new OrchestrationResponse(remaining), cached.expiresAt,
+                                                                    cached.refreshAt);
+      });
+      if (changed[0]) {
+        affected++;
+      }
+    }
+    if (affected > 0) {
+      scheduleSave();
+    }
+    return affected;
+  }
+
+  /*
+    Drops the cached responses a newly registered provider of the given service could be part of (same service definition, and at least one
+    common interface if both sides specify them), so the next get asks the Orchestrator again. Returns the number of dropped entries.
+   */
+  public int invalidateService(ArrowheadService service) {
+    invalidations.incrementAndGet();
+    int affected = 0;
+    for (Key key : entries.keySet()) {
+      if (Objects.equals(service.getServiceDefinition(), key.serviceDefinition) && key.hasCommonInterface(service.getInterfaces())
+          && entries.remove(key) != null) {
+        affected++;
+      }
+    }
+    if (affected > 0) {
+      scheduleSave();
+    }
+    return affected;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private OrchestrationResponse orchestrate(Key key, ServiceRequestForm srf) {
+    long generation = invalidations.get();
+    OrchestrationResponse response = orchestrator.apply(srf);
+    //Empty responses are not cached, a provider may register any moment
+    if (response != null && !response.getResponse().isEmpty() && invalidations.get() == generation) {
+      entries.put(key, new CachedOrchestration(srf, response, getLifetime(response)));
+    } else {
+      entries.remove(key);
+    }
+    scheduleSave();
+    return response;
+  }
+
+  //Saves the snapshot on the background thread, the changes made until the save actually starts are written at once
+  private void scheduleSave() {
+    if (snapshotFile == null || !saveScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refresher.execute(() -> {
+        saveScheduled.set(false);
+        save();
+      });
+    } catch (RejectedExecutionException e) {
+      saveScheduled.set(false);
+    }
+  }
+
+  private void refreshInBackground(Key key, ServiceRequestForm srf, CachedOrchestration cached) {
+    try {
+      refresher.execute(() -> {
+        try {
+          orchestrate(key, srf);
+        } catch (RuntimeException e) {
+          //The current entry stays usable until it expires, the next read after a failed refresh tries again
+          cached.refreshing.set(false);
+          System.out.println("Background re-orchestration of " + key + " failed: " + e.getMessage());
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      cached.refreshing.set(false);
+    }
+  }
+
+  private long getLifetime(OrchestrationResponse response) {
+    for (OrchestrationForm form : response.getResponse()) {
+      if (form.getAuthorizationToken() != null) {
+        return Math.min(ttl, tokenLifetime);
+      }
+    }
+    return ttl;
+  }
+
+  private final class CachedOrchestration {
+
+    private final ServiceRequestForm srf;
+    private final OrchestrationResponse response;
+    private final long refreshAt;
+    private final long expiresAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private CachedOrchestration(ServiceRequestForm srf, OrchestrationResponse response, long lifetime) {
+      long now = System.nanoTime();
+      this.srf = srf;
+      this.response = response;
+      this.expiresAt = now + TimeUnit.MILLISECONDS.toNanos(lifetime);
+      this.refreshAt = refreshAhead < 100 ? now + TimeUnit.MILLISECONDS.toNanos(lifetime * refreshAhead / 100) : expiresAt;
+    }
+
+    //expiresAt and refreshAt are System.nanoTime values
+    private CachedOrchestration(ServiceRequestForm srf, OrchestrationResponse response, long expiresAt, long refreshAt) {
+      this.srf = srf;
+      this.response = response;
+      this.expiresAt = expiresAt;
+      this.refreshAt = refreshAt;
+    }
+
+    private boolean isExpired() {
+      return expiresAt - System.nanoTime() <= 0;
+    }
+
+    private boolean needsRefresh() {
+      return refreshAt - System.nanoTime() <= 0;
+    }
+  }
+
+  //One entry of the snapshot file, expiresAt is a wall clock time (epoch milliseconds), so it stays valid across restarts
+  private static final class SnapshotEntry {
+
+    private ServiceRequestForm request;
+    private OrchestrationResponse response;
+    private long expiresAt;
+
+    private SnapshotEntry() {
+    }
+
+    private SnapshotEntry(ServiceRequestForm request, OrchestrationResponse response, long expiresAt) {
+      this.request = request;
+      this.response = response;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  //Requester system (name, address, port), requested service (definition, interfaces, metadata) and the orchestration flags set to true
+  private static final class Key {
+
+    private final String requester;
+    private final String serviceDefinition;
+    private final Set<String> interfaces = new TreeSet<>();
+    private final Map<String, String> metadata = new TreeMap<>();
+    private final Set<String> flags = new TreeSet<>();
+
+    private Key(ServiceRequestForm srf) {
+      ArrowheadSystem system = srf.getRequesterSystem();
+      requester = system == null ? null : system.getSystemName() + "@" + system.getAddress() + ":" + system.getPort();
+      ArrowheadService service = srf.getRequestedService();
+      serviceDefinition = service == null ? null : service.getServiceDefinition();
+      if (service != null && service.getInterfaces() != null) {
+        interfaces.addAll(service.getInterfaces());
+      }
+      if (service != null && service.getServiceMetadata() != null) {
+        metadata.putAll(service.getServiceMetadata());
+      }
+      if (srf.getOrchestrationFlags() != null) {
+        for (Entry<String, Boolean> flag : srf.getOrchestrationFlags().entrySet()) {
+          if (Boolean.TRUE.equals(flag.getValue())) {
+            flags.add(flag.getKey());
+          }
+        }
+      }
+    }
+
+    private boolean hasCommonInterface(Set<String> providedInterfaces) {
+      if (interfaces.isEmpty() || providedInterfaces == null || providedInterfaces.isEmpty()) {
+        return true;
+      }
+      for (String providedInterface : providedInterfaces) {
+        if (interfaces.contains(providedInterface)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return Objects.equals(requester, key.requester) && Objects.equals(serviceDefinition, key.serviceDefinition) && interfaces
+          .equals(key.interfaces) && metadata.equals(key.metadata) && flags.equals(key.flags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(requester, serviceDefinition, interfaces, metadata, flags);
+    }
+
+    @Override
+    public String toString() {
+      return serviceDefinition + " for " + requester;
+    }
+  }
+
+}
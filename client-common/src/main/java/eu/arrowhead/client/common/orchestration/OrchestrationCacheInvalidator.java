@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.exception.BadPayloadException;
+import eu.arrowhead.client.common.filter.AccessPolicy;
+import eu.arrowhead.client.common.filter.RateLimiter;
+import eu.arrowhead.client.common.http.LatencyResource;
+import eu.arrowhead.client.common.misc.ClientType;
+import eu.arrowhead.client.common.misc.SecurityUtils;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.ArrowheadSystem;
+import eu.arrowhead.client.common.model.Event;
+import eu.arrowhead.client.common.model.EventFilter;
+import eu.arrowhead.client.common.model.ServiceRegistryEntry;
+import java.io.IOException;
+import java.net.URI;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.UriBuilder;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.model.Resource;
+
+/*
+  Keeps an OrchestrationCache in sync with the Service Registry, so the cache lifetimes can be long without routing traffic to dead providers.
+  Starts a small web server for the consumer (with the OrchestrationEventResource), and subscribes at the Event Handler to the events published
+  when a provider registers or unregisters a service. The payload of these events is the ServiceRegistryEntry in JSON.
+    Unregister: the forms of the provider (for the given service) are removed from every cached response.
+    Register: the cached responses for the service are dropped, since the new provider might be a better (or the only) match now.
+ */
+public class OrchestrationCacheInvalidator {
+
+  private final OrchestrationCache cache;
+  private final String registerEventType;
+  private final String unregisterEventType;
+  private final String ehUri;
+  private final String baseUri;
+  private final String notifyPath;
+  private final List<String> subscribedEventTypes = new ArrayList<>();
+
+  private HttpServer server;
+  private String subscriberName;
+
+  public OrchestrationCacheInvalidator(OrchestrationCache cache, String registerEventType, String unregisterEventType, String ehUri,
+                                       String baseUri, String notifyPath) {
+    this.cache = cache;
+    this.registerEventType = registerEventType;
+    this.unregisterEventType = unregisterEventType;
+    this.ehUri = ehUri;
+    this.baseUri = baseUri;
+    this.notifyPath = notifyPath;
+  }
+
+  //Returns null if the event driven invalidation is disabled in the config files (or there is no cache to invalidate)
+  public static OrchestrationCacheInvalidator fromProperties(TypeSafeProperties props, OrchestrationCache cache, boolean isSecure) {
+    if (cache == null || !props.getBooleanProperty("orchestration_events_enabled", false)) {
+      return null;
+    }
+    String ehAddress = props.getProperty("eh_address", "0.0.0.0");
+    int ehPort = isSecure ? props.getIntProperty("eh_secure_port", 8455) : props.getIntProperty("eh_insecure_port", 8454);
+    String ehUri = Utility.getUri(ehAddress, ehPort, "eventhandler/subscription", isSecure, false);
+
+    String address = props.getProperty("address", "0.0.0.0");
+    int port = isSecure ? props.getIntProperty("secure_port", ClientType.CONSUMER.getSecurePort())
+                        : props.getIntProperty("insecure_port", ClientType.CONSUMER.getInsecurePort());
+    String baseUri = Utility.getUri(address, port, null, isSecure, true);
+
+    return new OrchestrationCacheInvalidator(cache, props.getProperty("orchestration_register_event", "service_registered"),
+                                             props.getProperty("orchestration_unregister_event", "service_unregistered"), ehUri, baseUri,
+                                             OrchestrationEventResource.PATH);
+  }
+
+  /*
+    Starts the web server receiving the events, and subscribes to the register/unregister events with the given system name. In secure mode the
+    SSLContext is used by the web server too (with client authentication), and its certificate has to be in the keystore given in the config.
+   */
+  public synchronized void start(String systemName, SSLContext sslContext, TypeSafeProperties props) {
+    if (server != null) {
+      return;
+    }
+    String authenticationInfo = null;
+    String serverCN = null;
+    if (sslContext != null) {
+      KeyStore keyStore = SecurityUtils.loadKeyStore(props.getProperty("keystore"), props.getProperty("keystorepass"));
+      X509Certificate serverCert = SecurityUtils.getFirstCertFromKeyStore(keyStore);
+      authenticationInfo = Base64.getEncoder().encodeToString(serverCert.getPublicKey().getEncoded());
+      serverCN = SecurityUtils.getCertCNFromSubject(serverCert.getSubjectDN().getName());
+    }
+    startServer(sslContext, props, serverCN);
+
+    URI uri = URI.create(baseUri);
+    ArrowheadSystem subscriber = new ArrowheadSystem(systemName, uri.getHost(), uri.getPort(), authenticationInfo);
+    subscriberName = systemName;
+    for (String eventType : Arrays.asList(registerEventType, unregisterEventType)) {
+      try {
+        Utility.exchange(ehUri, "POST", new EventFilter(eventType, subscriber, notifyPath), Void.class);
+        subscribedEventTypes.add(eventType);
+        System.out.println("Subscribed to " + eventType + " events for orchestration cache invalidation.");
+      } catch (ArrowheadException e) {
+        //The cache still works without the events, its entries just live until their TTL
+        System.out.println("Subscribing to " + eventType + " events failed: " + e.getMessage());
+      }
+    }
+  }
+
+  //Unsubscribes from the events and stops the web server
+  public synchronized void stop() {
+    for (String eventType : subscribedEventTypes) {
+      String url = UriBuilder.fromPath(ehUri).path("type").path(eventType).path("consumer").path(subscriberName).toString();
+      try {
+        Utility.exchange(url, "DELETE", null, Void.class);
+      } catch (ArrowheadException e) {
+        System.out.println("Unsubscribing from " + eventType + " events failed: " + e.getMessage());
+      }
+    }
+    subscribedEventTypes.clear();
+    if (server != null) {
+      server.shutdownNow();
+      server = null;
+    }
+  }
+
+  //Applies a received event to the cache, events with other types are ignored
+  public void onEvent(Event event) {
+    boolean register = registerEventType.equals(event.getType());
+    if (!register && !unregisterEventType.equals(event.getType())) {
+      return;
+    }
+    ServiceRegistryEntry entry = Utility.fromJson(event.getPayload(), ServiceRegistryEntry.class);
+    if (entry.getProvidedService() == null || (!register && entry.getProvider() == null)) {
+      throw new BadPayloadException(event.getType() + " event payload is missing the provided service or the provider system.", 400);
+    }
+
+    int affected;
+    if (register) {
+      affected = cache.invalidateService(entry.getProvidedService());
+    } else {
+      affected = cache.invalidateProvider(entry.getProvider(), entry.getProvidedService().getServiceDefinition());
+    }
+    System.out.println(event.getType() + " event for " + entry.getProvidedService().getServiceDefinition() + " affected " + affected
+                           + " cached orchestration response(s).");
+  }
+
+  //Same filters and settings as the web servers of ArrowheadClientMain: authentication, access control and rate limiting from the config file
+  private void startServer(SSLContext sslContext, TypeSafeProperties props, String serverCN) {
+    ResourceConfig config = new ResourceConfig();
+    config.registerResources(Resource.builder(OrchestrationEventResource.class).path(OrchestrationEventResource.PATH).build());
+    config.registerClasses(LatencyResource.class);
+    config.property(OrchestrationEventResource.INVALIDATOR_PROPERTY, this);
+    config.packages("eu.arrowhead.client.common.exception", "eu.arrowhead.client.common.filter", "eu.arrowhead.client.common.misc");
+    config.property(RateLimiter.PROPERTY, RateLimiter.fromProperties(props));
+    if (serverCN != null) {
+      config.property("server_common_name", serverCN);
+      config.property(AccessPolicy.PROPERTY, AccessPolicy.fromProperties(props, serverCN));
+    }
+
+    URI uri = UriBuilder.fromUri(baseUri).build();
+    try {
+      if (sslContext != null) {
+        server = GrizzlyHttpServerFactory
+            .createHttpServer(uri, config, true, new SSLEngineConfigurator(sslContext, false, true, false), false);
+      } else {
+        server = GrizzlyHttpServerFactory.createHttpServer(uri, config, false);
+      }
+      server.start();
+      System.out.println("Started orchestration event listener at: " + baseUri);
+    } catch (IOException | ProcessingException e) {
+      throw new ServiceConfigurationError("Make sure you gave a valid address in the config file! (Assignable to this JVM and not in use already)",
+                                          e);
+    }
+  }
+
+}
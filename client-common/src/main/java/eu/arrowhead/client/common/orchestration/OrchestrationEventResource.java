@@ -0,0 +1,54 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.exception.DataNotFoundException;
+import eu.arrowhead.client.common.model.Event;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/*
+  REST interface for the Event Handler to deliver the Service Registry events. It has no @Path annotation on purpose: the client main classes
+  scan the eu.arrowhead.client.common package for resources, but only the web server of OrchestrationCacheInvalidator should offer this one
+  (it registers the resource under PATH itself).
+ */
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class OrchestrationEventResource {
+
+  static final String PATH = "orchestration/events";
+  static final String INVALIDATOR_PROPERTY = "orchestration_cache_invalidator";
+
+  @Context
+  private Configuration configuration;
+
+  @GET
+  public Response getIt() {
+    return Response.ok().build();
+  }
+
+  @POST
+  public Response receiveEvent(Event event) {
+    OrchestrationCacheInvalidator invalidator = (OrchestrationCacheInvalidator) configuration.getProperty(INVALIDATOR_PROPERTY);
+    if (invalidator == null) {
+      throw new DataNotFoundException("This web server does not receive orchestration events.", Status.NOT_FOUND.getStatusCode());
+    }
+    invalidator.onEvent(event);
+    return Response.ok().build();
+  }
+
+}
@@ -0,0 +1,53 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.model.ArrowheadSystem;
+import eu.arrowhead.client.common.model.OrchestrationForm;
+import eu.arrowhead.client.common.model.OrchestrationResponse;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.core.UriBuilder;
+
+//Helper methods to turn the OrchestrationForms received from the Orchestrator into provider URLs
+public final class OrchestrationForms {
+
+  private OrchestrationForms() throws AssertionError {
+    throw new AssertionError("Arrowhead Common:OrchestrationForms is a non-instantiable class");
+  }
+
+  //Compiles the URL of the provider in the form (with the authorization token and signature, if the service is secure)
+  public static String getProviderUrl(OrchestrationForm form) {
+    ArrowheadSystem provider = form.getProvider();
+    UriBuilder ub = UriBuilder.fromPath("").host(provider.getAddress()).scheme("http");
+    if (form.getServiceURI() != null) {
+      ub.path(form.getServiceURI());
+    }
+    if (provider.getPort() != null && provider.getPort() > 0) {
+      ub.port(provider.getPort());
+    }
+    if (form.getService() != null && form.getService().getServiceMetadata().containsKey("security")) {
+      ub.scheme("https");
+      ub.queryParam("token", form.getAuthorizationToken());
+      ub.queryParam("signature", form.getSignature());
+    }
+    return ub.toString();
+  }
+
+  //Provider URLs of every form in the response, in the order the Orchestrator returned them
+  public static List<String> getProviderUrls(OrchestrationResponse response) {
+    List<String> urls = new ArrayList<>();
+    for (OrchestrationForm form : response.getResponse()) {
+      urls.add(getProviderUrl(form));
+    }
+    return urls;
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.orchestration;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.exception.UnavailableServerException;
+import eu.arrowhead.client.common.http.RequestOptions;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/*
+  Sends the same request to every provider of a service in parallel (with Utility.sendRequestAsync), under one global deadline, and gathers
+  the answers. The result is valid if at least quorumPercent of the providers answered successfully before the deadline, the missing answers
+  are reported as errors of the (partial) result. The answers are also handed to a callback as they arrive, so aggregates can be computed on
+  the fly instead of after the slowest provider.
+ */
+public class ScatterGather {
+
+  private final long timeout;
+  private final int quorumPercent;
+
+  /**
+   * @param timeout the global deadline of the whole call (milliseconds), the answers arriving later are dropped
+   * @param quorumPercent percentage (1-100) of the providers which have to answer successfully
+   */
+  public ScatterGather(long timeout, int quorumPercent) {
+    if (timeout < 1 || quorumPercent < 1 || quorumPercent > 100) {
+      throw new IllegalArgumentException("Scatter-gather timeout must be positive, and the quorum must be between 1 and 100 percent!");
+    }
+    this.timeout = timeout;
+    this.quorumPercent = quorumPercent;
+  }
+
+  //Returns null if the scatter-gather mode is disabled in the config files
+  public static ScatterGather fromProperties(TypeSafeProperties props) {
+    if (!props.getBooleanProperty("scatter_gather_enabled", false)) {
+      return null;
+    }
+    return new ScatterGather(props.getIntProperty("scatter_gather_timeout", 2000), props.getIntProperty("scatter_gather_quorum", 50));
+  }
+
+  //Blocks until every provider answered or the deadline passed, throws UnavailableServerException if the quorum was not reached
+  public <T, R> GatherResult<R> gather(List<String> urls, String method, T payload, Class<R> responseType, BiConsumer<String, R> onResult) {
+    return Utility.join(gatherAsync(urls, method, payload, responseType, onResult));
+  }
+
+  /**
+   * @param urls the URLs of the providers (e.g. from OrchestrationForms.getProviderUrls)
+   * @param onResult called with every successful answer as it arrives (from the async request threads, so it has to be thread safe), can be
+   *     null
+   */
+  public <T, R> CompletionStage<GatherResult<R>> gatherAsync(List<String> urls, String method, T payload, Class<R> responseType,
+                                                             BiConsumer<String, R> onResult) {
+    //At least 1 answer is needed, even if the quorum percentage rounds down to 0
+    int quorum = Math.max(1, (urls.size() * quorumPercent + 99) / 100);
+    GatherResult<R> result = new GatherResult<>(urls.size(), quorum);
+    CompletableFuture<GatherResult<R>> done = new CompletableFuture<>();
+    if (urls.isEmpty()) {
+      done.completeExceptionally(new UnavailableServerException("There are no providers to gather the results from!", 503));
+      return done;
+    }
+
+    //Every request gets the same deadline, so the last one fails at the latest when the global deadline expires
+    RequestOptions options = new RequestOptions.Builder().timeout(timeout).build();
+    AtomicInteger remaining = new AtomicInteger(urls.size());
+    for (String url : urls) {
+      Utility.sendRequestAsync(url, method, payload, responseType, null, options).whenComplete((response, error) -> {
+        try {
+          if (error == null) {
+            result.addResult(url, response);
+            if (onResult != null) {
+              onResult.accept(url, response);
+            }
+          } else {
+            result.addError(url, Utility.toArrowheadException(error, "Request to " + url + " failed"));
+          }
+        } finally {
+          //A failing callback must not leave the whole call hanging
+          if (remaining.decrementAndGet() == 0) {
+            finish(result, done);
+          }
+        }
+      });
+    }
+    return done;
+  }
+
+  private static <R> void finish(GatherResult<R> result, CompletableFuture<GatherResult<R>> done) {
+    if (result.isQuorumReached()) {
+      done.complete(result);
+    } else {
+      done.completeExceptionally(new UnavailableServerException(
+          "Only " + result.getResults().size() + " of " + result.getRequested() + " providers answered in time, the quorum is " + result
+              .getQuorum(), 503));
+    }
+  }
+
+}
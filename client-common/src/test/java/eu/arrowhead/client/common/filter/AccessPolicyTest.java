@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AccessPolicyTest {
+
+  private static final String SERVER_CN = "provider.testcloud1.aitia.arrowhead.eu";
+
+  private static ClientIdentity client(String commonName) {
+    return new ClientIdentity("CN=" + commonName + ", O=Arrowhead");
+  }
+
+  @Test
+  public void localCloudAllowsSystemsOfTheSameCloud() {
+    AccessPolicy policy = AccessPolicy.compile("/:local_cloud", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client1.testcloud1.aitia.arrowhead.eu"), "temperature"));
+    assertTrue(policy.isAllowed(client("CLIENT2.TestCloud1.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client1.testcloud2.aitia.arrowhead.eu"), "temperature"));
+  }
+
+  @Test
+  public void wildcardMatchesAnyCharacters() {
+    AccessPolicy policy = AccessPolicy.compile("/:*.testcloud2.aitia.arrowhead.eu", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client1.testcloud2.aitia.arrowhead.eu"), "temperature"));
+    assertTrue(policy.isAllowed(client("Client1.TESTCLOUD2.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client1.testcloud1.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client1.testcloud2.aitia.arrowhead.eu.evil.com"), "temperature"));
+  }
+
+  @Test
+  public void wildcardQuotesTheRestOfThePattern() {
+    //The dots are literal, not regex wildcards
+    AccessPolicy policy = AccessPolicy.compile("/:client*.testcloud1.aitia.arrowhead.eu", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client.testcloud1.aitia.arrowhead.eu"), "temperature"));
+    assertTrue(policy.isAllowed(client("client42.testcloud1.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client1xtestcloud1.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("other.testcloud1.aitia.arrowhead.eu"), "temperature"));
+  }
+
+  @Test
+  public void multipleWildcards() {
+    AccessPolicy policy = AccessPolicy.compile("/:*.*cloud*.aitia.arrowhead.eu", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client1.testcloud2.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client1.testsegment.aitia.arrowhead.eu"), "temperature"));
+  }
+
+  @Test
+  public void fullCommonNameMatchesOnlyThatClient() {
+    AccessPolicy policy = AccessPolicy.compile("/:client1.testcloud2.aitia.arrowhead.eu", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client1.testcloud2.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client2.testcloud2.aitia.arrowhead.eu"), "temperature"));
+  }
+
+  @Test
+  public void systemNameMustBeFromTheLocalCloud() {
+    AccessPolicy policy = AccessPolicy.compile("/:client1", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client1.testcloud1.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client1.testcloud2.aitia.arrowhead.eu"), "temperature"));
+    assertFalse(policy.isAllowed(client("client2.testcloud1.aitia.arrowhead.eu"), "temperature"));
+  }
+
+  @Test
+  public void longestPathPrefixApplies() {
+    AccessPolicy policy = AccessPolicy.compile("/:local_cloud;/admin:admin;/admin/public:*", SERVER_CN);
+    ClientIdentity client = client("client1.testcloud1.aitia.arrowhead.eu");
+    ClientIdentity admin = client("admin.testcloud1.aitia.arrowhead.eu");
+    ClientIdentity foreign = client("client1.testcloud2.aitia.arrowhead.eu");
+    assertTrue(policy.isAllowed(client, "temperature"));
+    assertFalse(policy.isAllowed(client, "admin/users"));
+    assertTrue(policy.isAllowed(admin, "admin/users"));
+    assertTrue(policy.isAllowed(foreign, "admin/public/info"));
+    assertFalse(policy.isAllowed(foreign, "temperature"));
+  }
+
+  @Test
+  public void pathWithoutRuleIsDenied() {
+    AccessPolicy policy = AccessPolicy.compile("/temperature:local_cloud", SERVER_CN);
+    assertTrue(policy.isAllowed(client("client1.testcloud1.aitia.arrowhead.eu"), "/temperature/"));
+    assertFalse(policy.isAllowed(client("client1.testcloud1.aitia.arrowhead.eu"), "temperatures"));
+    assertFalse(policy.isAllowed(client("client1.testcloud1.aitia.arrowhead.eu"), "car"));
+  }
+
+  @Test
+  public void repeatedDecisionsArePerRule() {
+    AccessPolicy policy = AccessPolicy.compile("/:local_cloud;/admin:admin", SERVER_CN);
+    ClientIdentity client = client("client1.testcloud1.aitia.arrowhead.eu");
+    for (int i = 0; i < 3; i++) {
+      assertTrue(policy.isAllowed(client, "temperature"));
+      assertFalse(policy.isAllowed(client, "admin"));
+    }
+  }
+
+}
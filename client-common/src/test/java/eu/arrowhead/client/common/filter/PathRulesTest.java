@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import java.util.ServiceConfigurationError;
+import java.util.function.Function;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PathRulesTest {
+
+  private static PathRules<String> parse(String rules) {
+    return PathRules.parse(rules, "test_rules", Function.identity());
+  }
+
+  @Test
+  public void longestPrefixWins() {
+    PathRules<String> rules = parse("/:root;/a:a;/a/b/c:abc;/a/b:ab");
+    assertEquals("root", rules.get("x"));
+    assertEquals("a", rules.get("a"));
+    assertEquals("a", rules.get("a/x/c"));
+    assertEquals("ab", rules.get("a/b"));
+    assertEquals("ab", rules.get("a/b/x"));
+    assertEquals("abc", rules.get("a/b/c"));
+    assertEquals("abc", rules.get("a/b/c/d/e"));
+  }
+
+  @Test
+  public void prefixMatchesWholeSegments() {
+    PathRules<String> rules = parse("/temperature:t");
+    assertEquals("t", rules.get("temperature"));
+    assertEquals("t", rules.get("temperature/1"));
+    assertNull(rules.get("temperatures"));
+    assertNull(rules.get("temp"));
+    assertNull(rules.get(""));
+  }
+
+  @Test
+  public void slashesAreIgnoredAtBothEnds() {
+    PathRules<String> rules = parse(" /a/b/ : ab ;//c:c");
+    assertEquals("ab", rules.get("/a/b"));
+    assertEquals("ab", rules.get("a/b/"));
+    assertEquals("ab", rules.get("//a/b//"));
+    assertEquals("c", rules.get("c"));
+  }
+
+  @Test
+  public void rootMatchesEveryPath() {
+    PathRules<String> rules = parse("/:root");
+    assertEquals("root", rules.get(""));
+    assertEquals("root", rules.get("/"));
+    assertEquals("root", rules.get("any/path"));
+  }
+
+  @Test
+  public void emptyRulesAreSkipped() {
+    PathRules<String> rules = parse(";/a:a;;");
+    assertEquals("a", rules.get("a"));
+    assertNull(rules.get("b"));
+  }
+
+  @Test(expected = ServiceConfigurationError.class)
+  public void duplicatePrefixIsRejected() {
+    parse("/a:1;a/:2");
+  }
+
+  @Test(expected = ServiceConfigurationError.class)
+  public void ruleWithoutValueIsRejected() {
+    parse("/a:1;/b");
+  }
+
+  @Test(expected = ServiceConfigurationError.class)
+  public void ruleWithEmptyValueIsRejected() {
+    parse("/a: ");
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void burstIsAllowedThenLimited() {
+    RateLimiter limiter = RateLimiter.compile("/:1,3", 100);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    }
+    long wait = limiter.tryAcquire("client1", "temperature");
+    //The next token arrives 1 second after the first one was taken
+    assertTrue(wait > 0 && wait <= SECOND);
+  }
+
+  @Test
+  public void rejectedRequestsDoNotTakeTokens() {
+    RateLimiter limiter = RateLimiter.compile("/:1,1", 100);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    long first = limiter.tryAcquire("client1", "temperature");
+    long second = limiter.tryAcquire("client1", "temperature");
+    assertTrue(first > 0 && second > 0 && second <= first);
+  }
+
+  @Test
+  public void bucketRefillsAtTheAllowedRate() throws InterruptedException {
+    //A token every 100 ms, so a slow test thread can not get a new one between the first 2 calls
+    RateLimiter limiter = RateLimiter.compile("/:10,1", 100);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    long wait = limiter.tryAcquire("client1", "temperature");
+    assertTrue(wait > 0);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(wait) + 10);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+  }
+
+  @Test
+  public void burstDefaultsToTheRate() {
+    RateLimiter limiter = RateLimiter.compile("/:2", 100);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    assertTrue(limiter.tryAcquire("client1", "temperature") > 0);
+  }
+
+  @Test
+  public void clientsHaveSeparateBuckets() {
+    RateLimiter limiter = RateLimiter.compile("/:1,1", 100);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    assertTrue(limiter.tryAcquire("client1", "temperature") > 0);
+    assertEquals(0, limiter.tryAcquire("client2", "temperature"));
+  }
+
+  @Test
+  public void rulesHaveSeparateBuckets() {
+    RateLimiter limiter = RateLimiter.compile("/:1,1;/car:1,1", 100);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    assertEquals(0, limiter.tryAcquire("client1", "car/1"));
+    assertTrue(limiter.tryAcquire("client1", "temperature/2") > 0);
+    assertTrue(limiter.tryAcquire("client1", "car") > 0);
+  }
+
+  @Test
+  public void unlimitedAndUnmatchedPathsAreNotLimited() {
+    RateLimiter limiter = RateLimiter.compile("/temperature:1,1;/temperature/stats:unlimited", 100);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, limiter.tryAcquire("client1", "temperature/stats"));
+      assertEquals(0, limiter.tryAcquire("client1", "car"));
+    }
+  }
+
+  @Test
+  public void clientsAboveTheLimitShareTheOverflowBucket() {
+    RateLimiter limiter = RateLimiter.compile("/:1,2", 1);
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+    //client1 is not idle (its bucket is not full), so its bucket can not be dropped
+    assertEquals(0, limiter.tryAcquire("client2", "temperature"));
+    assertEquals(0, limiter.tryAcquire("client3", "temperature"));
+    assertTrue(limiter.tryAcquire("client4", "temperature") > 0);
+    //client1 still has its own bucket with 1 token left
+    assertEquals(0, limiter.tryAcquire("client1", "temperature"));
+  }
+
+  @Test(expected = ServiceConfigurationError.class)
+  public void invalidQuotaIsRejected() {
+    RateLimiter.compile("/:fast", 100);
+  }
+
+  @Test(expected = ServiceConfigurationError.class)
+  public void nonPositiveQuotaIsRejected() {
+    RateLimiter.compile("/:10,0", 100);
+  }
+
+}
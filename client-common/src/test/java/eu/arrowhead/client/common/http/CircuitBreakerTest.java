@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.http.CircuitBreaker.State;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+  private static CircuitBreaker breaker(int openDuration) {
+    //Opens at 50% failure rate over the last 4 calls, 2 successful trial calls close it again
+    return new CircuitBreaker("http://localhost:8080", new CircuitBreakerConfig(true, 50, 4, 4, openDuration, 2));
+  }
+
+  private static void call(CircuitBreaker breaker, boolean failure) {
+    assertTrue(breaker.tryAcquire());
+    if (failure) {
+      breaker.onFailure();
+    } else {
+      breaker.onSuccess();
+    }
+  }
+
+  @Test
+  public void staysClosedUntilMinimumCalls() {
+    CircuitBreaker breaker = breaker(60000);
+    call(breaker, true);
+    call(breaker, true);
+    call(breaker, true);
+    assertEquals(State.CLOSED, breaker.getState());
+    call(breaker, true);
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void opensAtFailureRateThreshold() {
+    CircuitBreaker breaker = breaker(60000);
+    call(breaker, false);
+    call(breaker, false);
+    call(breaker, false);
+    call(breaker, true);
+    assertEquals(State.CLOSED, breaker.getState());
+    //The oldest success slides out of the window: 2 failures out of 4
+    call(breaker, true);
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void slidingWindowForgetsOldFailures() {
+    CircuitBreaker breaker = breaker(60000);
+    call(breaker, true);
+    call(breaker, false);
+    call(breaker, false);
+    call(breaker, false);
+    //The failure slides out of the window, so this one makes it 1 out of 4 again
+    call(breaker, true);
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void openCircuitRejectsCalls() {
+    CircuitBreaker breaker = breaker(60000);
+    for (int i = 0; i < 4; i++) {
+      call(breaker, true);
+    }
+    assertFalse(breaker.tryAcquire());
+    assertTrue(breaker.getRemainingOpenTime() > 0);
+  }
+
+  @Test
+  public void halfOpenClosesAfterSuccessfulTrials() {
+    CircuitBreaker breaker = breaker(0);
+    for (int i = 0; i < 4; i++) {
+      call(breaker, true);
+    }
+    assertEquals(State.OPEN, breaker.getState());
+
+    //The open duration already passed, so the next call is a trial call
+    assertTrue(breaker.tryAcquire());
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    assertTrue(breaker.tryAcquire());
+    assertFalse("Only 2 trial calls are allowed at the same time", breaker.tryAcquire());
+    breaker.onSuccess();
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    breaker.onSuccess();
+    assertEquals(State.CLOSED, breaker.getState());
+
+    //The window starts empty after closing
+    call(breaker, true);
+    call(breaker, true);
+    call(breaker, true);
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void halfOpenReopensOnFailure() {
+    CircuitBreaker breaker = breaker(0);
+    for (int i = 0; i < 4; i++) {
+      call(breaker, true);
+    }
+    assertTrue(breaker.tryAcquire());
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    breaker.onFailure();
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void releaseGivesBackTrialPermit() {
+    CircuitBreaker breaker = breaker(0);
+    for (int i = 0; i < 4; i++) {
+      call(breaker, true);
+    }
+    assertTrue(breaker.tryAcquire());
+    assertTrue(breaker.tryAcquire());
+    assertFalse(breaker.tryAcquire());
+    breaker.release();
+    assertTrue(breaker.tryAcquire());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsInvalidThreshold() {
+    new CircuitBreakerConfig(true, 0, 4, 4, 0, 2);
+  }
+
+}
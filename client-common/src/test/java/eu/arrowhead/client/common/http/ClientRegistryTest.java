@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClientRegistryTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static SSLContext context() throws NoSuchAlgorithmException {
+    return SSLContext.getInstance("TLS");
+  }
+
+  @Test
+  public void sameContextGetsSameClient() throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    ClientRegistry registry = new ClientRegistry(4, (context, poolName) -> {
+      created.incrementAndGet();
+      return ClientBuilder.newClient();
+    });
+    SSLContext context = context();
+    ClientRegistry.Lease first = registry.acquire(context);
+    ClientRegistry.Lease second = registry.acquire(context);
+    assertSame(first.getClient(), second.getClient());
+    assertNotSame(first.getClient(), registry.acquire(context()).getClient());
+    assertEquals(2, created.get());
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  public void leastRecentlyUsedClientIsEvicted() throws Exception {
+    ClientRegistry registry = new ClientRegistry(2, (context, poolName) -> ClientBuilder.newClient());
+    SSLContext first = context();
+    Client firstClient = registry.acquire(first).getClient();
+    registry.acquire(context());
+    registry.acquire(context());
+    assertEquals(2, registry.size());
+    assertNotSame(firstClient, registry.acquire(first).getClient());
+  }
+
+  @Test
+  public void slowClientCreationDoesNotBlockOtherContexts() throws Exception {
+    CountDownLatch building = new CountDownLatch(1);
+    CountDownLatch finishBuilding = new CountDownLatch(1);
+    SSLContext slow = context();
+    ClientRegistry registry = new ClientRegistry(4, (context, poolName) -> {
+      if (context == slow) {
+        building.countDown();
+        try {
+          finishBuilding.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return ClientBuilder.newClient();
+    });
+
+    Future<ClientRegistry.Lease> slowLease = executor.submit(() -> registry.acquire(slow));
+    building.await();
+    Future<ClientRegistry.Lease> fastLease = executor.submit(() -> registry.acquire(context()));
+    fastLease.get(5, TimeUnit.SECONDS);
+    finishBuilding.countDown();
+    slowLease.get(5, TimeUnit.SECONDS);
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  public void clientBuiltConcurrentlyForTheSameContextIsDiscarded() throws Exception {
+    CountDownLatch bothBuilding = new CountDownLatch(2);
+    AtomicInteger created = new AtomicInteger();
+    ClientRegistry registry = new ClientRegistry(4, (context, poolName) -> {
+      created.incrementAndGet();
+      bothBuilding.countDown();
+      try {
+        bothBuilding.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ClientBuilder.newClient();
+    });
+
+    SSLContext context = context();
+    Future<ClientRegistry.Lease> first = executor.submit(() -> registry.acquire(context));
+    Future<ClientRegistry.Lease> second = executor.submit(() -> registry.acquire(context));
+    assertSame(first.get(5, TimeUnit.SECONDS).getClient(), second.get(5, TimeUnit.SECONDS).getClient());
+    assertEquals(2, created.get());
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  public void defaultClientIsReplaced() throws Exception {
+    ClientRegistry registry = new ClientRegistry(4, (context, poolName) -> ClientBuilder.newClient());
+    assertNull(registry.acquireDefault());
+    registry.setDefault(context(), "https");
+    ClientRegistry.Lease inUse = registry.acquireDefault();
+    registry.setDefault(context(), "https");
+    ClientRegistry.Lease replaced = registry.acquireDefault();
+    assertNotSame(inUse.getClient(), replaced.getClient());
+    //The previous client stays usable by the request which leased it
+    inUse.getClient().target("http://localhost").request();
+    inUse.release();
+    inUse.release();
+    replaced.release();
+    assertEquals(0, registry.size());
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void emptyHistogram() {
+    LatencyStats stats = new LatencyHistogram().getStats();
+    assertEquals(0, stats.getCount());
+    assertEquals(0, stats.getMax(), DELTA);
+  }
+
+  @Test
+  public void bucketsCoverEveryValue() {
+    //Every value falls into the bucket it is the upper bound of, or below it
+    int previous = -1;
+    for (long micros = 0; micros < 1 << 20; micros++) {
+      int bucket = LatencyHistogram.getBucket(micros);
+      assertTrue(bucket == previous || bucket == previous + 1);
+      assertTrue(micros <= LatencyHistogram.getUpperBound(bucket));
+      if (bucket > 0) {
+        assertTrue(micros > LatencyHistogram.getUpperBound(bucket - 1));
+      }
+      previous = bucket;
+    }
+  }
+
+  @Test
+  public void bucketErrorIsWithinOneEighth() {
+    for (long micros = 16; micros < 1L << 36; micros = micros * 3 / 2 + 1) {
+      long upperBound = LatencyHistogram.getUpperBound(LatencyHistogram.getBucket(micros));
+      assertTrue(upperBound - micros <= micros / 8);
+    }
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+    LatencyStats stats = histogram.getStats();
+    assertEquals(10, stats.getCount());
+    assertEquals(0.005, stats.getP50(), DELTA);
+    assertEquals(0.009, stats.getP90(), DELTA);
+    assertEquals(0.010, stats.getP99(), DELTA);
+    assertEquals(0.010, stats.getMax(), DELTA);
+    assertEquals(0.006, stats.getMean(), DELTA);
+  }
+
+  @Test
+  public void percentilesOfUniformDistribution() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    LatencyStats stats = histogram.getStats();
+    assertEquals(1000, stats.getCount());
+    assertWithinBucket(500, stats.getP50());
+    assertWithinBucket(900, stats.getP90());
+    assertWithinBucket(990, stats.getP99());
+    assertEquals(1000, stats.getMax(), DELTA);
+    assertEquals(500.5, stats.getMean(), 0.001);
+  }
+
+  @Test
+  public void percentileNeverExceedsMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    //16 µs falls into the 16-17 µs bucket, but the percentile must not be reported above the largest sample
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(16));
+    LatencyStats stats = histogram.getStats();
+    assertEquals(0.016, stats.getP99(), DELTA);
+  }
+
+  @Test
+  public void tailLatencyShowsInHighPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 98; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    histogram.record(TimeUnit.SECONDS.toNanos(2));
+    histogram.record(TimeUnit.SECONDS.toNanos(3));
+    LatencyStats stats = histogram.getStats();
+    assertWithinBucket(10, stats.getP50());
+    assertWithinBucket(10, stats.getP90());
+    assertWithinBucket(2000, stats.getP99());
+    assertEquals(3000, stats.getMax(), DELTA);
+  }
+
+  @Test
+  public void negativeLatencyIsRecordedAsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    assertEquals(1, histogram.getStats().getCount());
+    assertEquals(0, histogram.getStats().getMax(), DELTA);
+  }
+
+  //The reported percentile is the upper bound of the bucket of the expected value, so it can be higher by at most 1/8
+  private static void assertWithinBucket(double expectedMillis, double actualMillis) {
+    assertTrue("Expected " + expectedMillis + " ms, got " + actualMillis, actualMillis >= expectedMillis && actualMillis <= expectedMillis * 1.125);
+  }
+
+}
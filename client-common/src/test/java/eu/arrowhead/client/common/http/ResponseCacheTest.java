@@ -0,0 +1,212 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.http.ResponseCache.CachedResponse;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseCacheTest {
+
+  private static final String URI = "http://localhost:8080/provider/readout";
+
+  private ResponseCache cache;
+  private Origin origin;
+  private Client client;
+
+  @Before
+  public void setUp() {
+    cache = new ResponseCache(16, 1024 * 1024);
+    origin = new Origin();
+    //The cache filter runs first, the origin answers the requests which got through it
+    client = ClientBuilder.newClient().register(new ResponseCacheFilter(cache, "test"), 1).register(origin, 2);
+  }
+
+  @After
+  public void tearDown() {
+    client.close();
+  }
+
+  private String get(String... headers) {
+    Invocation.Builder builder = client.target(URI).request();
+    for (int i = 0; i < headers.length; i += 2) {
+      builder.header(headers[i], headers[i + 1]);
+    }
+    Response response = builder.get();
+    assertEquals(Status.OK.getStatusCode(), response.getStatus());
+    return response.readEntity(String.class);
+  }
+
+  @Test
+  public void freshResponseIsServedFromCache() {
+    origin.respond(ok("first").header(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+    assertEquals("first", get());
+    assertEquals("first", get());
+    assertEquals(1, origin.requests.size());
+    assertEquals(1, cache.getStats().getHits());
+  }
+
+  @Test
+  public void responseWithoutMaxAgeOrETagIsNotStored() {
+    origin.respond(ok("first"));
+    origin.respond(ok("second"));
+    assertEquals("first", get());
+    assertEquals("second", get());
+    assertEquals(0, cache.getStats().getEntries());
+  }
+
+  @Test
+  public void noStoreResponseIsNotStored() {
+    origin.respond(ok("first").header(HttpHeaders.CACHE_CONTROL, "no-store, max-age=60"));
+    origin.respond(ok("second"));
+    assertEquals("first", get());
+    assertEquals("second", get());
+  }
+
+  @Test
+  public void ageIsSubtractedFromMaxAge() {
+    origin.respond(ok("first").header(HttpHeaders.CACHE_CONTROL, "max-age=60").header("Age", "60"));
+    origin.respond(ok("second"));
+    assertEquals("first", get());
+    assertEquals("second", get());
+  }
+
+  @Test
+  public void staleResponseIsRevalidatedWithETag() {
+    origin.respond(ok("first").tag("v1"));
+    origin.respond(Response.notModified().tag("v1"));
+    assertEquals("first", get());
+    //The 304 answer is turned back into the cached 200 response
+    assertEquals("first", get());
+    assertNull(origin.requests.get(0).getHeaderString(HttpHeaders.IF_NONE_MATCH));
+    assertEquals("\"v1\"", origin.requests.get(1).getHeaderString(HttpHeaders.IF_NONE_MATCH));
+    assertEquals(1, cache.getStats().getRevalidations());
+  }
+
+  @Test
+  public void changedResponseReplacesTheStaleOne() {
+    origin.respond(ok("first").tag("v1"));
+    origin.respond(ok("second").tag("v2"));
+    origin.respond(Response.notModified().tag("v2"));
+    assertEquals("first", get());
+    assertEquals("second", get());
+    assertEquals("second", get());
+    assertEquals("\"v2\"", origin.requests.get(2).getHeaderString(HttpHeaders.IF_NONE_MATCH));
+  }
+
+  @Test
+  public void varyHeaderSeparatesEntries() {
+    origin.respond(ok("english").header(HttpHeaders.CACHE_CONTROL, "max-age=60").header(HttpHeaders.VARY, "Accept-Language"));
+    origin.respond(ok("deutsch").header(HttpHeaders.CACHE_CONTROL, "max-age=60").header(HttpHeaders.VARY, "Accept-Language"));
+    assertEquals("english", get(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+    assertEquals("deutsch", get(HttpHeaders.ACCEPT_LANGUAGE, "de"));
+    assertEquals(2, origin.requests.size());
+    //The entry of the last response only matches requests with the same header value
+    assertEquals("deutsch", get(HttpHeaders.ACCEPT_LANGUAGE, "de"));
+    assertEquals(2, origin.requests.size());
+  }
+
+  @Test
+  public void varyStarIsNotStored() {
+    origin.respond(ok("first").header(HttpHeaders.CACHE_CONTROL, "max-age=60").header(HttpHeaders.VARY, "*"));
+    origin.respond(ok("second"));
+    assertEquals("first", get());
+    assertEquals("second", get());
+  }
+
+  @Test
+  public void requestNoCacheForcesRevalidation() {
+    origin.respond(ok("first").header(HttpHeaders.CACHE_CONTROL, "max-age=60").tag("v1"));
+    origin.respond(Response.notModified().tag("v1"));
+    assertEquals("first", get());
+    assertEquals("first", get(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    assertEquals(2, origin.requests.size());
+    assertEquals("\"v1\"", origin.requests.get(1).getHeaderString(HttpHeaders.IF_NONE_MATCH));
+  }
+
+  @Test
+  public void unsafeMethodInvalidatesEntry() {
+    origin.respond(ok("first").header(HttpHeaders.CACHE_CONTROL, "max-age=60"));
+    origin.respond(Response.noContent());
+    origin.respond(ok("second"));
+    assertEquals("first", get());
+    client.target(URI).request().put(Entity.text("update")).close();
+    assertEquals("second", get());
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    ResponseCache small = new ResponseCache(2, 1024);
+    small.put("a", entry("a"));
+    small.put("b", entry("b"));
+    small.get("a");
+    small.put("c", entry("c"));
+    assertNull(small.get("b"));
+    assertEquals(2, small.getStats().getEntries());
+    assertEquals(1, small.getStats().getEvictions());
+  }
+
+  @Test
+  public void totalSizeIsBounded() {
+    ResponseCache small = new ResponseCache(16, 10);
+    small.put("a", entry("123456"));
+    small.put("b", entry("123456"));
+    assertNull(small.get("a"));
+    assertEquals(6, small.getStats().getSize());
+  }
+
+  private static ResponseBuilder ok(String body) {
+    return Response.ok(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "text/plain");
+  }
+
+  private static CachedResponse entry(String body) {
+    return new CachedResponse(body.getBytes(StandardCharsets.UTF_8), new MultivaluedHashMap<>(), null, new HashMap<>(), 60000);
+  }
+
+  //Stands in for the remote server: answers the requests in order with the queued responses, and records them
+  private static final class Origin implements ClientRequestFilter {
+
+    private final Deque<ResponseBuilder> responses = new ArrayDeque<>();
+    private final List<ClientRequestContext> requests = new ArrayList<>();
+
+    void respond(ResponseBuilder response) {
+      responses.add(response);
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+      requests.add(request);
+      request.abortWith(responses.remove().build());
+    }
+  }
+
+}
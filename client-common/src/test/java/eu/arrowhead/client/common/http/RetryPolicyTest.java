@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.http;
+
+import eu.arrowhead.client.common.exception.ExceptionType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+  @Test
+  public void budgetAllowsMinimumRetriesWithoutTraffic() {
+    RetryBudget budget = new RetryBudget(0, 2);
+    assertTrue(budget.tryRetry());
+    assertTrue(budget.tryRetry());
+    assertFalse(budget.tryRetry());
+  }
+
+  @Test
+  public void budgetGrowsWithRequests() {
+    RetryBudget budget = new RetryBudget(20, 0);
+    for (int i = 0; i < 9; i++) {
+      budget.onRequest();
+    }
+    //9 requests only give 1.8 retries, rounded down
+    assertTrue(budget.tryRetry());
+    assertFalse(budget.tryRetry());
+
+    budget = new RetryBudget(20, 0);
+    for (int i = 0; i < 10; i++) {
+      budget.onRequest();
+    }
+    assertTrue(budget.tryRetry());
+    assertTrue(budget.tryRetry());
+    assertFalse(budget.tryRetry());
+  }
+
+  @Test
+  public void idempotentRequestsUseConfiguredAttempts() {
+    RetryPolicy policy = new RetryPolicy(3, 100, 2000, new RetryBudget(20, 10));
+    assertEquals(3, policy.startRequest("GET", RequestOptions.DEFAULT));
+    assertEquals(3, policy.startRequest("PUT", RequestOptions.DEFAULT));
+    assertEquals(3, policy.startRequest("DELETE", RequestOptions.DEFAULT));
+    assertEquals(5, policy.startRequest("GET", new RequestOptions.Builder().maxAttempts(5).build()));
+  }
+
+  @Test
+  public void nonIdempotentRequestsNeedRetrySafeOption() {
+    RetryPolicy policy = new RetryPolicy(3, 100, 2000, new RetryBudget(20, 10));
+    assertEquals(1, policy.startRequest("POST", RequestOptions.DEFAULT));
+    assertEquals(3, policy.startRequest("POST", new RequestOptions.Builder().retrySafe(true).build()));
+  }
+
+  @Test
+  public void canRetryRespectsAttemptsAndBudget() {
+    RetryPolicy policy = new RetryPolicy(3, 100, 2000, new RetryBudget(0, 1));
+    assertFalse(policy.canRetry(3, 3));
+    assertTrue(policy.canRetry(1, 3));
+    assertFalse("The budget is used up", policy.canRetry(2, 3));
+  }
+
+  @Test
+  public void backoffDoublesUpToTheMaximum() {
+    RetryPolicy policy = new RetryPolicy(10, 100, 500, new RetryBudget(20, 10));
+    //Full jitter: the wait is random between 0 and the bound, so sample it many times
+    long[] maxSeen = new long[6];
+    for (int i = 0; i < 10000; i++) {
+      for (int retry = 1; retry <= 5; retry++) {
+        long backoff = policy.getBackoff(retry);
+        assertTrue(backoff >= 0);
+        maxSeen[retry] = Math.max(maxSeen[retry], backoff);
+      }
+    }
+    assertTrue(maxSeen[1] <= 100 && maxSeen[1] > 50);
+    assertTrue(maxSeen[2] <= 200 && maxSeen[2] > 100);
+    assertTrue(maxSeen[3] <= 400 && maxSeen[3] > 200);
+    assertTrue(maxSeen[4] <= 500 && maxSeen[4] > 400);
+    assertTrue(maxSeen[5] <= 500);
+  }
+
+  @Test
+  public void zeroBackoffDoesNotWait() {
+    RetryPolicy policy = new RetryPolicy(3, 0, 0, new RetryBudget(20, 10));
+    assertEquals(0, policy.getBackoff(1));
+    assertEquals(0, policy.getBackoff(3));
+  }
+
+  @Test
+  public void onlyTransientErrorsAreRetryable() {
+    assertTrue(RetryPolicy.isRetryable(503, null));
+    assertTrue(RetryPolicy.isRetryable(504, ExceptionType.UNAVAILABLE));
+    assertFalse(RetryPolicy.isRetryable(503, ExceptionType.BAD_PAYLOAD));
+    assertFalse(RetryPolicy.isRetryable(500, null));
+    assertFalse(RetryPolicy.isRetryable(429, null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMaxBackoffBelowInitial() {
+    new RetryPolicy(3, 1000, 100, new RetryBudget(20, 10));
+  }
+
+}
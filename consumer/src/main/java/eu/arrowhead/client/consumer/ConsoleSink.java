@@ -0,0 +1,27 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.consumer;
+
+import eu.arrowhead.client.common.model.TemperatureReadout;
+import java.time.LocalDateTime;
+
+//Default sink of the daemon mode: prints the temperature readouts to the standard output (so it works on headless machines too)
+public class ConsoleSink implements ResultSink<TemperatureReadout> {
+
+  @Override
+  public void accept(TemperatureReadout readout) {
+    if (readout.getE().isEmpty() || readout.getE().get(0) == null) {
+      System.out.println(LocalDateTime.now() + " Provider did not send any MeasurementEntry.");
+    } else {
+      System.out.println(LocalDateTime.now() + " The indoor temperature is " + readout.getE().get(0).getV() + " degrees celsius.");
+    }
+  }
+
+}
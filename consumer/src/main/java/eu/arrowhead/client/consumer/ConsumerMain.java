@@ -19,15 +19,27 @@ import eu.arrowhead.client.common.model.ArrowheadSystem;
 import eu.arrowhead.client.common.model.OrchestrationResponse;
 import eu.arrowhead.client.common.model.ServiceRequestForm;
 import eu.arrowhead.client.common.model.TemperatureReadout;
+import eu.arrowhead.client.common.orchestration.CompiledServiceRequest;
+import eu.arrowhead.client.common.orchestration.FailoverPolicy;
+import eu.arrowhead.client.common.orchestration.GatherResult;
+import eu.arrowhead.client.common.orchestration.HedgedRequests;
+import eu.arrowhead.client.common.orchestration.LoadBalancer;
+import eu.arrowhead.client.common.orchestration.OrchestrationCache;
+import eu.arrowhead.client.common.orchestration.OrchestrationCacheInvalidator;
+import eu.arrowhead.client.common.orchestration.OrchestrationForms;
+import eu.arrowhead.client.common.orchestration.ScatterGather;
 import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
 import javax.net.ssl.SSLContext;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
-import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.ProcessingException;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator.GenericStoreException;
 
@@ -35,8 +47,23 @@ public class ConsumerMain {
 
   private static boolean isSecure;
   private static String orchestratorUrl;
+  private static SSLContext sslContext;
   private static TypeSafeProperties props = Utility.getProp();
   private static final String consumerSystemName = props.getProperty("consumer_system_name");
+  //Null, if load balancing is disabled in the config file (then the first provider returned by the Orchestrator is used)
+  private static final LoadBalancer loadBalancer = LoadBalancer.fromProperties(props);
+  //Null, if the hedging mode is disabled in the config file
+  private static final HedgedRequests hedging = HedgedRequests.fromProperties(props);
+  //Null, if the orchestration cache is disabled in the config file
+  private static final OrchestrationCache orchestrationCache = OrchestrationCache.fromProperties(props, ConsumerMain::orchestrate);
+  //Null, if the scatter-gather mode is disabled in the config file (then only one provider is asked)
+  private static final ScatterGather scatterGather = ScatterGather.fromProperties(props);
+  //Null, if failover is disabled in the config file
+  private static final FailoverPolicy failover = FailoverPolicy.fromProperties(props, orchestrationCache);
+  //Null, if the event driven invalidation of the orchestration cache is disabled in the config file
+  private static OrchestrationCacheInvalidator cacheInvalidator;
+  //The service request form serialized once, sent as it is with every orchestration request
+  private static volatile CompiledServiceRequest compiledRequest;
 
   private ConsumerMain(String[] args) {
     //Prints the working directory for extra information. Working directory should always contain a config folder with the app.conf file!
@@ -45,25 +72,47 @@ public class ConsumerMain {
     //Compile the URL for the orchestration request.
     getOrchestratorUrl(args);
 
+    //Reuse the orchestration responses of the previous run (while they are re-validated in the background)
+    if (orchestrationCache != null) {
+      orchestrationCache.restore();
+    }
+
+    //Subscribe to the provider register/unregister events, to keep the cached orchestration responses up to date
+    cacheInvalidator = OrchestrationCacheInvalidator.fromProperties(props, orchestrationCache, isSecure);
+    if (cacheInvalidator != null) {
+      cacheInvalidator.start(consumerSystemName, sslContext, props);
+    }
+
     //Start a timer, to measure the speed of the Core Systems and the provider application system.
     long startTime = System.currentTimeMillis();
 
     //Compile the payload, that needs to be sent to the Orchestrator - THIS METHOD SHOULD BE MODIFIED ACCORDING TO YOUR NEEDS
-    ServiceRequestForm srf = compileSRF();
+    ServiceRequestForm srf = getServiceRequestForm();
+
+    //In daemon mode the service is consumed periodically until the process is stopped (TERM signal)
+    if (Arrays.asList(args).contains("-daemon")) {
+      runDaemon(srf);
+      return;
+    }
 
     //Sending the orchestration request and parsing the response
-    String providerUrl = sendOrchestrationRequest(srf);
+    List<String> providerUrls = sendOrchestrationRequest(srf);
 
     //Connect to the provider, consuming its service - THIS METHOD SHOULD BE MODIFIED ACCORDING TO YOUR USE CASE
-    double temperature = consumeService(providerUrl);
+    double temperature = consumeService(srf, providerUrls);
 
     //Printing out the elapsed time during the orchestration and service consumption
     long endTime = System.currentTimeMillis();
     System.out.println("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
-    //Show a message dialog with the response from the service provider
-    JLabel label = new JLabel("The indoor temperature is " + temperature + " degrees celsius.");
-    label.setFont(new Font("Arial", Font.BOLD, 18));
-    JOptionPane.showMessageDialog(null, label, "Provider Response", JOptionPane.INFORMATION_MESSAGE);
+    //Show a message dialog with the response from the service provider (the result is only printed on machines without a display)
+    if (!GraphicsEnvironment.isHeadless()) {
+      JLabel label = new JLabel("The indoor temperature is " + temperature + " degrees celsius.");
+      label.setFont(new Font("Arial", Font.BOLD, 18));
+      JOptionPane.showMessageDialog(null, label, "Provider Response", JOptionPane.INFORMATION_MESSAGE);
+    }
+    if (cacheInvalidator != null) {
+      cacheInvalidator.stop();
+    }
   }
 
   public static void main(String[] args) {
@@ -106,29 +155,30 @@ public class ConsumerMain {
     orchestrationFlags.put("enableInterCloud", true);
 
     //Build the complete service request form from the pieces, and return it
-    ServiceRequestForm srf = new ServiceRequestForm.Builder(consumer).requestedService(service).orchestrationFlags(orchestrationFlags).build();
-    System.out.println("Service Request payload: " + Utility.toPrettyJson(null, srf));
-    return srf;
+    return new ServiceRequestForm.Builder(consumer).requestedService(service).orchestrationFlags(orchestrationFlags).build();
   }
 
-  private double consumeService(String providerUrl) {
+  private double consumeService(ServiceRequestForm srf, List<String> providerUrls) {
     /*
       Sending request to the provider, to the acquired URL. The method type and payload should be known beforehand.
       If needed, compile the request payload here, before sending the request.
       Supported method types at the moment: GET, POST, PUT, DELETE
+      In scatter-gather mode (scatter_gather_enabled=true), every provider is asked, and the answers are aggregated.
+      In hedging mode (hedging_enabled=true), the request is duplicated to the next provider(s) if the first one is slow to answer.
+      With failover (failover_enabled=true), an unavailable provider is skipped for a while, and the next one is tried. When every provider
+      failed, a new orchestration request is sent (with pingProviders=true).
      */
-    Response getResponse = Utility.sendRequest(providerUrl, "GET", null);
-
     /*
       Parsing the response from the provider here. This code prints an error message, if the answer is not in the expected JSON format, but custom
       error handling can also be implemented here. For example the Orchestrator will send back a JSON with the structure of the eu.arrowhead.client
       .common.exception.ErrorMessage class, and the errors from the Orchestrator are parsed this way.
+      Utility.exchange closes the response after parsing it, so the connection to the provider can be reused by the next request.
      */
     TemperatureReadout readout = new TemperatureReadout();
     try {
-      readout = getResponse.readEntity(TemperatureReadout.class);
+      readout = getReadout(srf, providerUrls);
       System.out.println("Provider Response payload: " + Utility.toPrettyJson(null, readout));
-    } catch (RuntimeException e) {
+    } catch (ProcessingException e) {
       e.printStackTrace();
       System.out.println("Provider did not send the temperature readout in SenML format.");
     }
@@ -141,6 +191,46 @@ public class ConsumerMain {
     }
   }
 
+  private TemperatureReadout getReadout(ServiceRequestForm srf, List<String> providerUrls) {
+    if (scatterGather != null) {
+      return gatherReadouts(providerUrls);
+    }
+    if (failover != null) {
+      return failover.execute(srf, providerUrls, this::sendOrchestrationRequest, this::requestReadout);
+    }
+    return requestReadout(providerUrls);
+  }
+
+  /*
+    Asks every provider at once, and merges their readouts (while they arrive) into one readout, starting with the mean, min and max entries.
+    Fails if less than scatter_gather_quorum percent of the providers answered within scatter_gather_timeout.
+   */
+  private TemperatureReadout gatherReadouts(List<String> providerUrls) {
+    TemperatureAggregate aggregate = new TemperatureAggregate();
+    GatherResult<TemperatureReadout> result = scatterGather
+        .gather(providerUrls, "GET", null, TemperatureReadout.class, (url, readout) -> aggregate.add(readout));
+    System.out.println(result.getResults().size() + " of " + result.getRequested() + " providers answered, mean: " + aggregate.getMean() + ", min: "
+                           + aggregate.getMin() + ", max: " + aggregate.getMax());
+    return aggregate.toReadout();
+  }
+
+  //Requests the temperature readout from the first provider (the rest are only used in hedging mode)
+  private TemperatureReadout requestReadout(List<String> providerUrls) {
+    if (hedging != null) {
+      return hedging.exchange(providerUrls, "GET", null, TemperatureReadout.class);
+    }
+    return Utility.exchange(providerUrls.get(0), "GET", null, TemperatureReadout.class);
+  }
+
+  //Readouts are considered changed, if their first measurement differs by more than daemon_change_threshold
+  private static boolean isChanged(TemperatureReadout previous, TemperatureReadout current) {
+    if (previous.getE().isEmpty() || current.getE().isEmpty()) {
+      return previous.getE().size() != current.getE().size();
+    }
+    double threshold = Double.parseDouble(props.getProperty("daemon_change_threshold", "0.1"));
+    return Math.abs(previous.getE().get(0).getV() - current.getE().get(0).getV()) > threshold;
+  }
+
    /*
       Methods that should be modified to your use case ↑
    ----------------------------------------------------------------------------------------------------------------------------------
@@ -164,14 +254,15 @@ public class ConsumerMain {
         sslCon.setTrustStorePass(props.getProperty("truststorepass"));
 
         try {
-          SSLContext sslContext = sslCon.createSSLContext(true);
+          sslContext = sslCon.createSSLContext(true);
           Utility.setSSLContext(sslContext);
         } catch (GenericStoreException e) {
           System.out.println("Provided SSLContext is not valid, moving to certificate bootstrapping.");
           e.printStackTrace();
           sslCon = CertificateBootstrapper.bootstrap(ClientType.CONSUMER, consumerSystemName);
           props = Utility.getProp();
-          Utility.setSSLContext(sslCon.createSSLContext(true));
+          sslContext = sslCon.createSSLContext(true);
+          Utility.setSSLContext(sslContext);
         }
         break;
       }
@@ -186,35 +277,82 @@ public class ConsumerMain {
   }
 
   /* NO NEED TO MODIFY (for basic functionality)
-     Sends the orchestration request to the Orchestrator, and compiles the URL for the first provider received from the OrchestrationResponse */
-  private String sendOrchestrationRequest(ServiceRequestForm srf) {
-    //Sending a POST request to the orchestrator (URL, method, payload)
-    Response postResponse = Utility.sendRequest(orchestratorUrl, "POST", srf);
-    //Parsing the orchestrator response
-    OrchestrationResponse orchResponse = postResponse.readEntity(OrchestrationResponse.class);
-    System.out.println("Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
+     Returns the compiled service request form, the form is only built and serialized again if one of the values it is built from changed
+     (add the new inputs to the list, if compileSRF is modified to use other variables too) */
+  private ServiceRequestForm getServiceRequestForm() {
+    List<Object> inputs = Arrays.asList(consumerSystemName, isSecure);
+    CompiledServiceRequest compiled = compiledRequest;
+    if (compiled == null || !compiled.isCompiledFrom(inputs)) {
+      compiled = CompiledServiceRequest.compile(compileSRF(), inputs);
+      compiledRequest = compiled;
+      System.out.println("Service Request payload: " + compiled);
+    }
+    return compiled.getForm();
+  }
+
+  /* NO NEED TO MODIFY (for basic functionality)
+     Sends the orchestration request to the Orchestrator, and compiles the URLs of the providers received in the OrchestrationResponse
+     (in the order the Orchestrator returned them, so the first one is the preferred provider) */
+  private List<String> sendOrchestrationRequest(ServiceRequestForm srf) {
+    //The orchestration cache only turns to the Orchestrator if it has no valid response for the same request yet
+    OrchestrationResponse orchResponse = orchestrationCache != null ? orchestrationCache.get(srf) : orchestrate(srf);
     if (orchResponse.getResponse().isEmpty()) {
       throw new ArrowheadException("Orchestrator returned with 0 Orchestration Forms!");
     }
 
-    //Getting the first provider from the response
-    ArrowheadSystem provider = orchResponse.getResponse().get(0).getProvider();
-    String serviceURI = orchResponse.getResponse().get(0).getServiceURI();
-    //Compiling the URL for the provider
-    UriBuilder ub = UriBuilder.fromPath("").host(provider.getAddress()).scheme("http");
-    if (serviceURI != null) {
-      ub.path(serviceURI);
+    //Compiling the URLs for the providers
+    List<String> providerUrls = OrchestrationForms.getProviderUrls(orchResponse);
+    if (loadBalancer != null) {
+      //The least loaded of 2 random providers comes first, the rest stay available for hedging and failover
+      providerUrls = loadBalancer.order(providerUrls);
     }
-    if (provider.getPort() != null && provider.getPort() > 0) {
-      ub.port(provider.getPort());
+    System.out.println("Received provider system URL: " + providerUrls.get(0));
+    return providerUrls;
+  }
+
+  /* NO NEED TO MODIFY (for basic functionality)
+     Polls the provider with adaptive intervals, and streams the readouts to the sink given in the config file. Every poll goes through the
+     orchestration cache (and failover), so the Orchestrator is only contacted when the cached response expired or the providers failed. */
+  private void runDaemon(ServiceRequestForm srf) {
+    ResultSink<TemperatureReadout> sink = createSink(props.getProperty("daemon_sink", ConsoleSink.class.getName()));
+    PollingConsumer<TemperatureReadout> poller = new PollingConsumer<>(() -> getReadout(srf, sendOrchestrationRequest(srf)),
+                                                                       ConsumerMain::isChanged, sink,
+                                                                       props.getIntProperty("daemon_min_interval", 1000),
+                                                                       props.getIntProperty("daemon_max_interval", 30000),
+                                                                       props.getIntProperty("daemon_backoff_percent", 50));
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      System.out.println("Received TERM signal, shutting down...");
+      poller.stop();
+      if (cacheInvalidator != null) {
+        cacheInvalidator.stop();
+      }
+    }));
+    System.out.println("Consumer started in daemon mode, process will terminate for TERM signal...");
+    poller.start();
+    try {
+      poller.awaitTermination();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
-    if (orchResponse.getResponse().get(0).getService().getServiceMetadata().containsKey("security")) {
-      ub.scheme("https");
-      ub.queryParam("token", orchResponse.getResponse().get(0).getAuthorizationToken());
-      ub.queryParam("signature", orchResponse.getResponse().get(0).getSignature());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ResultSink<TemperatureReadout> createSink(String className) {
+    try {
+      return (ResultSink<TemperatureReadout>) Class.forName(className).newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new ServiceConfigurationError("The daemon_sink class (" + className + ") must implement ResultSink with a public no-arg constructor!", e);
     }
-    System.out.println("Received provider system URL: " + ub.toString());
-    return ub.toString();
+  }
+
+  private static OrchestrationResponse orchestrate(ServiceRequestForm srf) {
+    //Sending a POST request to the orchestrator (URL, method, payload), and parsing the response into the given class
+    //The compiled form is sent as it is, other forms (e.g. the modified copies of failover) are serialized on the fly
+    CompiledServiceRequest compiled = compiledRequest;
+    Object payload = compiled != null && compiled.isCompiledFrom(srf) ? compiled : srf;
+    OrchestrationResponse orchResponse = Utility.exchange(orchestratorUrl, "POST", payload, OrchestrationResponse.class);
+    System.out.println("Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
+    return orchResponse;
   }
 
 }
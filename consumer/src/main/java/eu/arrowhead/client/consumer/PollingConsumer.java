@@ -0,0 +1,115 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.consumer;
+
+import eu.arrowhead.client.common.misc.NamedThreadFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/*
+  Daemon mode consumption engine: polls the source on a single scheduler thread, and streams every result to the sink. The polling interval
+  adapts to the data:
+    - a result which changed compared to the previous one (or the first result) resets the interval to the minimum
+    - a stable result (or a failed poll) grows the interval by backoffPercent, up to the maximum
+  The source is called from the same thread every time, so the orchestration cache and the pooled connections are reused between the polls.
+ */
+public class PollingConsumer<T> {
+
+  private final Supplier<T> source;
+  private final BiPredicate<T, T> changed;
+  private final ResultSink<T> sink;
+  private final long minInterval;
+  private final long maxInterval;
+  private final int backoffPercent;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("arrowhead-polling"));
+  private final CountDownLatch stopped = new CountDownLatch(1);
+
+  private volatile boolean running;
+  private volatile long interval;
+  private T previous;
+
+  /**
+   * @param source executes one consumption, and returns its result
+   * @param changed tells if the second (current) result is significantly different from the first (previous) one
+   * @param sink receives every result and error
+   * @param minInterval milliseconds between the polls while the results keep changing
+   * @param maxInterval milliseconds between the polls at most, while the results are stable
+   * @param backoffPercent the interval grows by this percentage after every stable result
+   */
+  public PollingConsumer(Supplier<T> source, BiPredicate<T, T> changed, ResultSink<T> sink, long minInterval, long maxInterval,
+                         int backoffPercent) {
+    if (minInterval < 1 || maxInterval < minInterval || backoffPercent < 0) {
+      throw new IllegalArgumentException("Polling intervals must be positive (max >= min), and the backoff percent can not be negative!");
+    }
+    this.source = source;
+    this.changed = changed;
+    this.sink = sink;
+    this.minInterval = minInterval;
+    this.maxInterval = maxInterval;
+    this.backoffPercent = backoffPercent;
+    this.interval = minInterval;
+  }
+
+  //The first poll is done right away
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    scheduler.execute(this::poll);
+  }
+
+  public synchronized void stop() {
+    running = false;
+    scheduler.shutdownNow();
+    stopped.countDown();
+  }
+
+  //Blocks the calling thread until stop is called (the scheduler thread is a daemon thread, it does not keep the JVM alive on its own)
+  public void awaitTermination() throws InterruptedException {
+    stopped.await();
+  }
+
+  //The current delay between two polls (milliseconds)
+  public long getInterval() {
+    return interval;
+  }
+
+  private void poll() {
+    boolean resetInterval = false;
+    try {
+      T result = source.get();
+      resetInterval = previous == null || changed.test(previous, result);
+      previous = result;
+      sink.accept(result);
+    } catch (RuntimeException e) {
+      try {
+        sink.onError(e);
+      } catch (RuntimeException sinkError) {
+        sinkError.printStackTrace();
+      }
+    }
+    interval = resetInterval ? minInterval : Math.min(maxInterval, interval + interval * backoffPercent / 100);
+
+    if (running) {
+      try {
+        scheduler.schedule(this::poll, interval, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        //Stopped in the meantime
+      }
+    }
+  }
+
+}
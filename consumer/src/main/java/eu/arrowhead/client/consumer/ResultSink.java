@@ -0,0 +1,26 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.consumer;
+
+/*
+  Receives the results of the daemon mode consumer (PollingConsumer), one call per poll. The implementation used by ConsumerMain is given in
+  the daemon_sink config property (with its fully qualified class name, it needs a public no-argument constructor).
+  Called from the single polling thread, so implementations do not have to be thread safe, but they should not block for long.
+ */
+public interface ResultSink<T> {
+
+  void accept(T result);
+
+  //The poll failed (e.g. the orchestration or every provider failed), the consumer keeps polling
+  default void onError(RuntimeException error) {
+    System.out.println("Polling failed: " + error.getMessage());
+  }
+
+}
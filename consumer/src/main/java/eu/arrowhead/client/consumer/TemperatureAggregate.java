@@ -0,0 +1,74 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.consumer;
+
+import eu.arrowhead.client.common.model.MeasurementEntry;
+import eu.arrowhead.client.common.model.TemperatureReadout;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+  Merges the temperature readouts of many providers (scatter-gather mode), while they arrive. The merged readout starts with the mean, min and
+  max entries, followed by every measurement entry received (in arrival order).
+ */
+public class TemperatureAggregate {
+
+  private final List<MeasurementEntry> entries = new ArrayList<>();
+  private String unit;
+  private int count;
+  private double sum;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public synchronized void add(TemperatureReadout readout) {
+    if (unit == null) {
+      unit = readout.getBu();
+    }
+    for (MeasurementEntry entry : readout.getE()) {
+      if (entry == null) {
+        continue;
+      }
+      entries.add(entry);
+      count++;
+      sum += entry.getV();
+      min = Math.min(min, entry.getV());
+      max = Math.max(max, entry.getV());
+    }
+  }
+
+  public synchronized int getCount() {
+    return count;
+  }
+
+  public synchronized double getMean() {
+    return count > 0 ? sum / count : Double.NaN;
+  }
+
+  public synchronized double getMin() {
+    return count > 0 ? min : Double.NaN;
+  }
+
+  public synchronized double getMax() {
+    return count > 0 ? max : Double.NaN;
+  }
+
+  public synchronized TemperatureReadout toReadout() {
+    long time = System.currentTimeMillis();
+    List<MeasurementEntry> merged = new ArrayList<>();
+    if (count > 0) {
+      merged.add(new MeasurementEntry("mean", getMean(), time));
+      merged.add(new MeasurementEntry("min", min, time));
+      merged.add(new MeasurementEntry("max", max, time));
+    }
+    merged.addAll(entries);
+    return new TemperatureReadout("aggregate", time, unit, 1, merged);
+  }
+
+}
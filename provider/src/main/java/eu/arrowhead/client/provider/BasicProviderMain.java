@@ -103,7 +103,7 @@ public class BasicProviderMain extends ArrowheadClientMain {
 
     //Send the registration request
     try {
-      Utility.sendRequest(registerUri, "POST", entry);
+      Utility.exchange(registerUri, "POST", entry, Void.class);
     } catch (ArrowheadException e) {
       /*
         Service Registry might return duplicate entry exception, if a previous instance of the web server already registered this service,
@@ -112,7 +112,7 @@ public class BasicProviderMain extends ArrowheadClientMain {
       if (e.getExceptionType() == ExceptionType.DUPLICATE_ENTRY) {
         System.out.println("Received DuplicateEntryException from SR, sending delete request and then registering again.");
         unregisterFromServiceRegistry(entry);
-        Utility.sendRequest(registerUri, "POST", entry);
+        Utility.exchange(registerUri, "POST", entry, Void.class);
       } else {
         throw e;
       }
@@ -123,7 +123,7 @@ public class BasicProviderMain extends ArrowheadClientMain {
   private void unregisterFromServiceRegistry(ServiceRegistryEntry entry) {
     //Create the full URL (appending "remove" to the base URL)
     String removeUri = UriBuilder.fromPath(SR_BASE_URI).path("remove").toString();
-    Utility.sendRequest(removeUri, "PUT", entry);
+    Utility.exchange(removeUri, "PUT", entry, Void.class);
     System.out.println("Removing service is successful!");
   }
 
@@ -47,8 +47,12 @@ import javax.ws.rs.core.UriBuilder;
 public class FullProviderMain extends ArrowheadClientMain {
 
   static String customResponsePayload;
+  static int readoutMaxAge;
   static PublicKey authorizationKey;
   static PrivateKey privateKey;
+  static TokenCryptoEngine cryptoEngine;
+  //Null, if the token cache is disabled in the config file (or in insecure mode)
+  static VerifiedTokenCache tokenCache;
 
   private static boolean NEED_AUTH;
   private static boolean NEED_ORCH;
@@ -99,6 +103,7 @@ public class FullProviderMain extends ArrowheadClientMain {
       registerToStore();
     }
 
+    readoutMaxAge = props.getIntProperty("readout_max_age", 0);
     if (props.getBooleanProperty("payload_from_file", false)) {
       customResponsePayload = props.getProperty("custom_payload");
     }
@@ -128,6 +133,8 @@ public class FullProviderMain extends ArrowheadClientMain {
     }
 
     System.out.println("Authorization System PublicKey Base64: " + Base64.getEncoder().encodeToString(authorizationKey.getEncoded()));
+    cryptoEngine = new TokenCryptoEngine(authorizationKey, privateKey, props.getProperty("token_crypto_provider", "BC"));
+    tokenCache = VerifiedTokenCache.fromProperties(props);
   }
 
   @Override
@@ -217,12 +224,12 @@ public class FullProviderMain extends ArrowheadClientMain {
     // create the URI for the request
     String registerUri = UriBuilder.fromPath(SR_BASE_URI).path("register").toString();
     try {
-      Utility.sendRequest(registerUri, "POST", srEntry);
+      Utility.exchange(registerUri, "POST", srEntry, Void.class);
     } catch (ArrowheadException e) {
       if (e.getExceptionType() == ExceptionType.DUPLICATE_ENTRY) {
         System.out.println("Received DuplicateEntryException from SR, sending delete request and then registering again.");
         unregisterFromServiceRegistry();
-        Utility.sendRequest(registerUri, "POST", srEntry);
+        Utility.exchange(registerUri, "POST", srEntry, Void.class);
       } else {
         throw e;
       }
@@ -232,7 +239,7 @@ public class FullProviderMain extends ArrowheadClientMain {
 
   private static void unregisterFromServiceRegistry() {
     String removeUri = UriBuilder.fromPath(SR_BASE_URI).path("remove").toString();
-    Utility.sendRequest(removeUri, "PUT", srEntry);
+    Utility.exchange(removeUri, "PUT", srEntry, Void.class);
     System.out.println("Removing service is successful!");
   }
 
@@ -241,7 +248,7 @@ public class FullProviderMain extends ArrowheadClientMain {
     int authPort = isSecure ? props.getIntProperty("auth_secure_port", 8445) : props.getIntProperty("auth_insecure_port", 8444);
     String authUri = Utility.getUri(authAddress, authPort, "authorization/mgmt/intracloud", isSecure, false);
     try {
-      Utility.sendRequest(authUri, "POST", authEntry);
+      Utility.exchange(authUri, "POST", authEntry, Void.class);
       System.out.println("Authorization registration is successful!");
     } catch (ArrowheadException e) {
       e.printStackTrace();
@@ -255,7 +262,7 @@ public class FullProviderMain extends ArrowheadClientMain {
     int orchPort = props.getIntProperty("orch_port", 8440);
     String orchUri = Utility.getUri(orchAddress, orchPort, "orchestrator/mgmt/store", false, false);
     try {
-      Utility.sendRequest(orchUri, "POST", storeEntry);
+      Utility.exchange(orchUri, "POST", storeEntry, Void.class);
       System.out.println("Store registration is successful!");
     } catch (ArrowheadException e) {
       e.printStackTrace();
@@ -3,15 +3,11 @@ package eu.arrowhead.client.provider;
 import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.ArrowheadException;
 import eu.arrowhead.client.common.exception.AuthException;
-import eu.arrowhead.client.common.misc.SecurityUtils;
+import eu.arrowhead.client.common.filter.ClientIdentity;
 import eu.arrowhead.client.common.model.RawTokenInfo;
 import java.nio.charset.StandardCharsets;
-import java.security.Security;
-import java.security.Signature;
 import java.util.Base64;
-import javax.crypto.Cipher;
 import javax.ws.rs.core.SecurityContext;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 class RequestVerification {
 
@@ -19,12 +15,13 @@ class RequestVerification {
     Based on the local Authorization public key and provider private key, this method verifies that the provided token/signature pair
     was created by the Authorization Core System with the provider public key. It also checks if the token expired or not, plus the token
     has to contain the same consumer name as the common name field of the client certificate.
+    Tokens which passed these checks are remembered until they expire (if the token cache is enabled), and only looked up again.
    */
   static void verifyRequester(SecurityContext context, String token, String signature) {
     try {
-      String commonName = SecurityUtils.getCertCNFromSubject(context.getUserPrincipal().getName());
-      String[] commonNameParts = commonName.split("\\.");
-      String consumerName = commonNameParts[0];
+      ClientIdentity identity = ClientIdentity.of(context.getUserPrincipal());
+      String commonName = identity.getCommonName();
+      String consumerName = identity.getSystemName();
 
       /*System.out.println(token);
       System.out.println(signature);*/
@@ -35,23 +32,21 @@ class RequestVerification {
         signature = signature.replaceAll("\\s", "+");
       }
 
+      VerifiedTokenCache tokenCache = FullProviderMain.tokenCache;
+      if (tokenCache != null && tokenCache.get(token, signature, commonName) != null) {
+        return;
+      }
+
       byte[] tokenbytes = Base64.getDecoder().decode(token);
       byte[] signaturebytes = Base64.getDecoder().decode(signature);
 
-      Security.addProvider(new BouncyCastleProvider());
-      Signature signatureInstance = Signature.getInstance("SHA256withRSA", "BC");
-      signatureInstance.initVerify(FullProviderMain.authorizationKey);
-      signatureInstance.update(tokenbytes);
-
-      boolean verifies = signatureInstance.verify(signaturebytes);
+      boolean verifies = FullProviderMain.cryptoEngine.verify(tokenbytes, signaturebytes);
       if (!verifies) {
         throw new AuthException("Authorization core system signature verification failed!");
       }
 
-      Cipher cipher = Cipher.getInstance("RSA/NONE/PKCS1Padding", "BC");
-      cipher.init(Cipher.DECRYPT_MODE, FullProviderMain.privateKey);
       //Check if the provider public key registered in the database is the same as the one used by the provider at the moment
-      byte[] byteToken = cipher.doFinal(tokenbytes);
+      byte[] byteToken = FullProviderMain.cryptoEngine.decrypt(tokenbytes);
 
       String json = new String(byteToken, StandardCharsets.UTF_8);
       RawTokenInfo rawTokenInfo = Utility.fromJson(json, RawTokenInfo.class);
@@ -63,6 +58,9 @@ class RequestVerification {
 
       if (consumerName.equalsIgnoreCase(consumerTokenName)) {
         if (endTime == 0L || (endTime > currentTime)) {
+          if (tokenCache != null) {
+            tokenCache.put(token, signature, commonName, rawTokenInfo);
+          }
           return;
         }
         throw new AuthException("Given token has expired!");
@@ -11,13 +11,18 @@ package eu.arrowhead.client.provider;
 
 import eu.arrowhead.client.common.model.MeasurementEntry;
 import eu.arrowhead.client.common.model.TemperatureReadout;
+import java.util.Objects;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.SecurityContext;
 
 @Path("/")
@@ -29,7 +34,8 @@ public class TemperatureResource {
 
   @GET
   @Path(SERVICE_URI)
-  public Response getIt(@Context SecurityContext context, @QueryParam("token") String token, @QueryParam("signature") String signature) {
+  public Response getIt(@Context SecurityContext context, @Context Request request, @QueryParam("token") String token,
+                        @QueryParam("signature") String signature) {
     String providerName;
     if (context.isSecure()) {
       RequestVerification.verifyRequester(context, token, signature);
@@ -38,14 +44,33 @@ public class TemperatureResource {
       providerName = "TemperatureSensors_InsecureTemperatureSensor";
     }
 
+    Object payload;
+    EntityTag eTag;
     if (FullProviderMain.customResponsePayload != null) {
-      return Response.status(200).entity(FullProviderMain.customResponsePayload).build();
+      payload = FullProviderMain.customResponsePayload;
+      eTag = new EntityTag(Integer.toHexString(FullProviderMain.customResponsePayload.hashCode()));
     } else {
       MeasurementEntry entry = new MeasurementEntry("Temperature_IndoorTemperature", 21.0, System.currentTimeMillis());
       TemperatureReadout readout = new TemperatureReadout(providerName, System.currentTimeMillis(), "celsius", 1);
       readout.getE().add(entry);
-      return Response.status(200).entity(readout).build();
+      payload = readout;
+      //Weak tag: the timestamps change with every readout, but the readout is only considered different if the measured value changes
+      eTag = new EntityTag(Integer.toHexString(Objects.hash(providerName, entry.getN(), entry.getV(), readout.getBu())), true);
     }
+
+    //Consumers which already have this readout get a 304 (Not Modified) answer without a payload
+    ResponseBuilder builder = request.evaluatePreconditions(eTag);
+    if (builder == null) {
+      builder = Response.status(200).entity(payload);
+    }
+    builder.tag(eTag);
+    if (FullProviderMain.readoutMaxAge > 0) {
+      CacheControl cacheControl = new CacheControl();
+      cacheControl.setPrivate(true);
+      cacheControl.setMaxAge(FullProviderMain.readoutMaxAge);
+      builder.cacheControl(cacheControl);
+    }
+    return builder.build();
   }
 
 }
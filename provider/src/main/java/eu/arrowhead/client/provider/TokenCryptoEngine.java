@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.provider;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.Signature;
+import java.util.ServiceConfigurationError;
+import javax.crypto.Cipher;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/*
+  Signature verification and decryption of the authorization tokens, with the algorithm implementations of the JCA provider chosen in the config
+  file:
+    BC: Bouncy Castle (registered once, when the first engine is created)
+    SunJCE: the JDK built-in providers (SunRsaSign for the signature, SunJCE for the cipher)
+  Looking up and initializing the Signature and Cipher instances is expensive (and synchronized on the global provider list), so every thread
+  keeps its own instances, initialized with the keys once. Both return to their initialized state after every verify/doFinal call, so they can
+  be reused as they are. An instance which threw an exception is dropped, and the next call on the thread creates a new one.
+ */
+class TokenCryptoEngine {
+
+  private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+
+  private final PublicKey authorizationKey;
+  private final PrivateKey privateKey;
+  private final String signatureProvider;
+  private final String cipherProvider;
+  //The same padding in both providers, only the block mode name differs
+  private final String cipherTransformation;
+  private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+  private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+  TokenCryptoEngine(PublicKey authorizationKey, PrivateKey privateKey, String provider) {
+    this.authorizationKey = authorizationKey;
+    this.privateKey = privateKey;
+    switch (provider) {
+      case "BC":
+        synchronized (TokenCryptoEngine.class) {
+          if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+          }
+        }
+        signatureProvider = BouncyCastleProvider.PROVIDER_NAME;
+        cipherProvider = BouncyCastleProvider.PROVIDER_NAME;
+        cipherTransformation = "RSA/NONE/PKCS1Padding";
+        break;
+      case "SunJCE":
+        signatureProvider = "SunRsaSign";
+        cipherProvider = "SunJCE";
+        cipherTransformation = "RSA/ECB/PKCS1Padding";
+        break;
+      default:
+        throw new ServiceConfigurationError("Unknown token_crypto_provider: " + provider + " (supported values: BC, SunJCE)");
+    }
+
+    //Fails at startup instead of the first request, if the keys do not fit the provider
+    try {
+      createSignature();
+      createCipher();
+    } catch (GeneralSecurityException e) {
+      throw new ServiceConfigurationError("Token verification keys can not be used with the " + provider + " provider: " + e.getMessage(), e);
+    }
+  }
+
+  //True if the signature is a valid SHA256withRSA signature of the data, created with the private key of the Authorization
+  boolean verify(byte[] data, byte[] signature) throws GeneralSecurityException {
+    Signature signatureInstance = signatures.get();
+    if (signatureInstance == null) {
+      signatureInstance = createSignature();
+      signatures.set(signatureInstance);
+    }
+    try {
+      signatureInstance.update(data);
+      return signatureInstance.verify(signature);
+    } catch (GeneralSecurityException | RuntimeException e) {
+      signatures.remove();
+      throw e;
+    }
+  }
+
+  //Decrypts data encrypted with the public key of this provider
+  byte[] decrypt(byte[] data) throws GeneralSecurityException {
+    Cipher cipher = ciphers.get();
+    if (cipher == null) {
+      cipher = createCipher();
+      ciphers.set(cipher);
+    }
+    try {
+      return cipher.doFinal(data);
+    } catch (GeneralSecurityException | RuntimeException e) {
+      ciphers.remove();
+      throw e;
+    }
+  }
+
+  private Signature createSignature() throws GeneralSecurityException {
+    Signature signatureInstance = Signature.getInstance(SIGNATURE_ALGORITHM, signatureProvider);
+    signatureInstance.initVerify(authorizationKey);
+    return signatureInstance;
+  }
+
+  private Cipher createCipher() throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance(cipherTransformation, cipherProvider);
+    cipher.init(Cipher.DECRYPT_MODE, privateKey);
+    return cipher;
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.provider;
+
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.RawTokenInfo;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Remembers the successfully verified token/signature pairs (per client certificate common name), so a consumer reusing its token does not cost
+  a signature verification and a decryption with every request. Entries expire at the end time of their token (tokens without an end time stay
+  until they are evicted). The keys are SHA-256 digests of the token, the signature and the common name, so an entry needs the same memory
+  regardless of the token size.
+ */
+class VerifiedTokenCache {
+
+  //MessageDigest is not thread safe, and looking it up from the providers with every request is expensive
+  private static final ThreadLocal<MessageDigest> digests = new ThreadLocal<>();
+
+  private final int maxEntries;
+  private final Map<String, RawTokenInfo> entries = new ConcurrentHashMap<>();
+
+  VerifiedTokenCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  //Returns null if the cache is disabled in the config file
+  static VerifiedTokenCache fromProperties(TypeSafeProperties props) {
+    if (!props.getBooleanProperty("token_cache_enabled", true)) {
+      return null;
+    }
+    return new VerifiedTokenCache(Math.max(1, props.getIntProperty("token_cache_max_entries", 1024)));
+  }
+
+  //The decoded token info of a previously verified, not yet expired token/signature pair, or null
+  RawTokenInfo get(String token, String signature, String commonName) throws NoSuchAlgorithmException {
+    String key = getKey(token, signature, commonName);
+    RawTokenInfo tokenInfo = entries.get(key);
+    if (tokenInfo != null && isExpired(tokenInfo, System.currentTimeMillis())) {
+      entries.remove(key, tokenInfo);
+      return null;
+    }
+    return tokenInfo;
+  }
+
+  //Stores a verified token, expired tokens first, then arbitrary ones are evicted if the cache is full
+  void put(String token, String signature, String commonName, RawTokenInfo tokenInfo) throws NoSuchAlgorithmException {
+    if (entries.size() >= maxEntries) {
+      evict();
+    }
+    entries.put(getKey(token, signature, commonName), tokenInfo);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private void evict() {
+    long now = System.currentTimeMillis();
+    entries.values().removeIf(tokenInfo -> isExpired(tokenInfo, now));
+    Iterator<String> keys = entries.keySet().iterator();
+    while (entries.size() >= maxEntries && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  private static boolean isExpired(RawTokenInfo tokenInfo, long now) {
+    Long endTime = tokenInfo.getE();
+    return endTime != null && endTime != 0L && endTime <= now;
+  }
+
+  private static String getKey(String token, String signature, String commonName) throws NoSuchAlgorithmException {
+    MessageDigest digest = digests.get();
+    if (digest == null) {
+      digest = MessageDigest.getInstance("SHA-256");
+      digests.set(digest);
+    }
+    try {
+      digest.update(token.getBytes(StandardCharsets.UTF_8));
+      //Separators, so the boundaries of the parts can not be shifted
+      digest.update((byte) 0);
+      digest.update(signature.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(commonName.getBytes(StandardCharsets.UTF_8));
+      //Also resets the digest for the next key
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (RuntimeException e) {
+      //The digest may hold a partial input, it is not reused
+      digests.remove();
+      throw e;
+    }
+  }
+
+}
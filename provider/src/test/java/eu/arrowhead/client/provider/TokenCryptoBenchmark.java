@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.provider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+  Compares the token_crypto_provider choices (Bouncy Castle and the JDK built-in providers) on the work RequestVerification does for every
+  request with a token: verifying the signature of the encrypted token, then decrypting it. The keys are 2048 bit RSA keys, like the ones
+  issued by the Arrowhead certificate authority. Not run by the unit tests, start it from the IDE, or from the project root with:
+    mvn -q test-compile dependency:build-classpath -pl provider -Dmdep.outputFile=target/test.cp -Dmdep.includeScope=test
+    java -cp provider/target/test-classes:provider/target/classes:$(cat provider/target/test.cp) eu.arrowhead.client.provider.TokenCryptoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenCryptoBenchmark {
+
+  @Param({"BC", "SunJCE"})
+  public String provider;
+
+  private TokenCryptoEngine engine;
+  private byte[] token;
+  private byte[] signature;
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair authorizationKeys = generator.generateKeyPair();
+    KeyPair providerKeys = generator.generateKeyPair();
+
+    //Token and signature as the Authorization system creates them (see RawTokenInfo)
+    Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, providerKeys.getPublic());
+    token = cipher.doFinal("{\"c\":\"client1.testcloud1.aitia.arrowhead.eu\",\"s\":\"IndoorTemperature\",\"e\":0}".getBytes(StandardCharsets.UTF_8));
+    Signature signer = Signature.getInstance("SHA256withRSA");
+    signer.initSign(authorizationKeys.getPrivate());
+    signer.update(token);
+    signature = signer.sign();
+
+    engine = new TokenCryptoEngine(authorizationKeys.getPublic(), providerKeys.getPrivate(), provider);
+    if (!engine.verify(token, signature)) {
+      throw new IllegalStateException("The benchmark token signature does not verify with the " + provider + " provider");
+    }
+  }
+
+  @Benchmark
+  public boolean verify() throws GeneralSecurityException {
+    return engine.verify(token, signature);
+  }
+
+  @Benchmark
+  public byte[] decrypt() throws GeneralSecurityException {
+    return engine.decrypt(token);
+  }
+
+  @Benchmark
+  public byte[] verifyAndDecrypt() throws GeneralSecurityException {
+    if (!engine.verify(token, signature)) {
+      throw new IllegalStateException("Signature verification failed");
+    }
+    return engine.decrypt(token);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TokenCryptoBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -59,7 +59,7 @@ public class PublisherMain extends ArrowheadClientMain {
     ArrowheadSystem source = new ArrowheadSystem(systemName, address, usedPort, base64PublicKey);
     Event event = new Event(type, payload, ZonedDateTime.now(), null);
     PublishEvent eventPublishing = new PublishEvent(source, event, "publisher/feedback");
-    Utility.sendRequest(ehUri, "POST", eventPublishing);
+    Utility.exchange(ehUri, "POST", eventPublishing, Void.class);
     System.out.println("Event published to EH.");
   }
 
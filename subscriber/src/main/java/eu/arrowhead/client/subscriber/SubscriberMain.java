@@ -83,7 +83,7 @@ public class SubscriberMain extends ArrowheadClientMain {
     String notifyPath = props.getProperty("notify_uri");
     for (String eventType : EVENT_TYPES) {
       EventFilter filter = new EventFilter(eventType, consumer, notifyPath);
-      Utility.sendRequest(EH_URI, "POST", filter);
+      Utility.exchange(EH_URI, "POST", filter, Void.class);
       System.out.println("Subscribed to " + eventType + " event types.");
     }
   }
@@ -92,7 +92,7 @@ public class SubscriberMain extends ArrowheadClientMain {
   private static void unsubscribe() {
     for (String eventType : EVENT_TYPES) {
       String url = UriBuilder.fromPath(EH_URI).path("type").path(eventType).path("consumer").path(CONSUMER_NAME).toString();
-      Utility.sendRequest(url, "DELETE", null);
+      Utility.exchange(url, "DELETE", null, Void.class);
       System.out.println("Unsubscribed from " + eventType + " event types.");
     }
   }